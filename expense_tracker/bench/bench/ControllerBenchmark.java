@@ -0,0 +1,68 @@
+package bench;
+
+import java.util.BitSet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import controller.ExpenseTrackerEngine;
+import model.Filter.CategoryFilter;
+import view.TransactionTableModel;
+
+/**
+ * What applyFilter and refreshTable cost without a display: the
+ * ExpenseTrackerController does the same work through its ExpenseTrackerEngine
+ * and the table model of the view, then paints.
+ *
+ * The window itself cannot be created headless, so painting is stood in for by
+ * reading the cells of one screen of rows from the table model.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx6g", "-Djava.awt.headless=true"})
+public class ControllerBenchmark {
+
+  private static final int VISIBLE_ROWS = 40;
+
+  @Param({"1000", "100000", "1000000", "10000000"})
+  public int rows;
+
+  private ExpenseTrackerEngine engine;
+  private TransactionTableModel tableModel;
+
+  @Setup(Level.Trial)
+  public void buildLedger() {
+    engine = new ExpenseTrackerEngine(Ledgers.model(rows));
+    engine.setFilter(new CategoryFilter("food"));
+    tableModel = new TransactionTableModel();
+    tableModel.setSource(engine.getModel());
+  }
+
+  @Benchmark
+  public BitSet applyFilter() {
+    return engine.filterRows();
+  }
+
+  @Benchmark
+  public void refreshTable(Blackhole blackhole) {
+    tableModel.refresh();
+    tableModel.flush();
+    int columns = tableModel.getColumnCount();
+    for (int row = 0; row < VISIBLE_ROWS && row < tableModel.getRowCount(); row++) {
+      for (int column = 0; column < columns; column++) {
+        blackhole.consume(tableModel.getValueAt(row, column));
+      }
+    }
+  }
+}
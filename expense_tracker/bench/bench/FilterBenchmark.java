@@ -0,0 +1,68 @@
+package bench;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import model.ExpenseTrackerModel;
+import model.Transaction;
+import model.Filter.AmountFilter;
+import model.Filter.CategoryFilter;
+
+/**
+ * The category and amount filters over ledgers of 1k to 10M rows, answered from
+ * the model's indexes and by scanning the transaction list.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx6g", "-Djava.awt.headless=true"})
+public class FilterBenchmark {
+
+  @Param({"1000", "100000", "1000000", "10000000"})
+  public int rows;
+
+  private ExpenseTrackerModel model;
+  private List<Transaction> transactions;
+  private CategoryFilter categoryFilter;
+  private AmountFilter amountFilter;
+
+  @Setup(Level.Trial)
+  public void buildLedger() {
+    model = Ledgers.model(rows);
+    transactions = model.getTransactions();
+    categoryFilter = new CategoryFilter("food");
+    amountFilter = new AmountFilter(500.0);
+  }
+
+  @Benchmark
+  public BitSet categoryFilterIndexed() {
+    return categoryFilter.filterRows(model);
+  }
+
+  @Benchmark
+  public BitSet categoryFilterScan() {
+    return categoryFilter.filterRows(transactions);
+  }
+
+  @Benchmark
+  public BitSet amountFilterIndexed() {
+    return amountFilter.filterRows(model);
+  }
+
+  @Benchmark
+  public BitSet amountFilterScan() {
+    return amountFilter.filterRows(transactions);
+  }
+}
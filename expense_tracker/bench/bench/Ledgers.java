@@ -0,0 +1,48 @@
+package bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import model.CategoryRegistry;
+import model.ExpenseTrackerModel;
+import model.Transaction;
+
+/**
+ * Builds the ledgers the benchmarks run against. The rows are random but
+ * seeded, so every run and every fork measures the same ledger: whole amounts
+ * from 1 to 1000 spread evenly over the default categories and the last year.
+ */
+final class Ledgers {
+
+  static final List<String> CATEGORIES = CategoryRegistry.DEFAULT_CATEGORIES;
+
+  private static final long SEED = 520L;
+  private static final int BATCH_SIZE = 64 * 1024;
+  private static final long YEAR_MILLIS = 365L * 24 * 60 * 60 * 1000;
+
+  private Ledgers() {
+  }
+
+  static ExpenseTrackerModel model(int rows) {
+    ExpenseTrackerModel model = new ExpenseTrackerModel();
+    SplittableRandom random = new SplittableRandom(SEED);
+    long now = System.currentTimeMillis();
+    List<Transaction> batch = new ArrayList<>(BATCH_SIZE);
+    for (int i = 0; i < rows; i++) {
+      batch.add(transaction(random, now));
+      if (batch.size() == BATCH_SIZE) {
+        model.addTransactions(batch);
+        batch.clear();
+      }
+    }
+    model.addTransactions(batch);
+    return model;
+  }
+
+  static Transaction transaction(SplittableRandom random, long now) {
+    double amount = 1 + random.nextInt(1000);
+    String category = CATEGORIES.get(random.nextInt(CATEGORIES.size()));
+    return new Transaction(amount, category, now - random.nextLong(YEAR_MILLIS));
+  }
+}
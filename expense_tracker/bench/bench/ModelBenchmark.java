@@ -0,0 +1,100 @@
+package bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import model.ExpenseTrackerModel;
+import model.Transaction;
+
+/**
+ * Adding to and reading from ledgers of 1k to 10M rows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx6g", "-Djava.awt.headless=true"})
+public class ModelBenchmark {
+
+  // Rows added per addTransaction invocation: a Level.Invocation fixture makes JMH
+  // time every invocation on its own, which would swamp a single add.
+  private static final int BATCH = 1000;
+
+  @Param({"1000", "100000", "1000000", "10000000"})
+  public int rows;
+
+  private ExpenseTrackerModel model;
+  private Transaction transaction;
+
+  @Setup(Level.Trial)
+  public void buildLedger() {
+    model = Ledgers.model(rows);
+    transaction = new Transaction(42.0, "food");
+  }
+
+  /**
+   * The ledger addTransaction appends to. Its rows are dropped after every
+   * invocation, so every add measures a ledger of the same size; only
+   * addTransaction uses this state, so the other benchmarks are not trimmed.
+   */
+  @State(Scope.Benchmark)
+  public static class Appended {
+
+    private ExpenseTrackerModel model;
+    private int rows;
+
+    @Setup(Level.Trial)
+    public void share(ModelBenchmark benchmark) {
+      model = benchmark.model;
+      rows = benchmark.rows;
+    }
+
+    @TearDown(Level.Invocation)
+    public void trimLedger() {
+      int added = model.getTransactionCount() - rows;
+      if (added > 0) {
+        int[] positions = new int[added];
+        for (int i = 0; i < added; i++) {
+          positions[i] = rows + i;
+        }
+        model.removeAt(positions);
+      }
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH)
+  public ExpenseTrackerModel addTransaction(Appended ledger) {
+    for (int i = 0; i < BATCH; i++) {
+      ledger.model.addTransaction(transaction);
+    }
+    return ledger.model;
+  }
+
+  @Benchmark
+  public List<Transaction> getTransactions() {
+    return model.getTransactions();
+  }
+
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public double sumTransactions() {
+    double sum = 0;
+    for (Transaction t : model.getTransactions()) {
+      sum += t.getAmount();
+    }
+    return sum;
+  }
+}
@@ -0,0 +1,50 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import controller.InputValidation;
+import model.Transaction;
+
+/**
+ * The per-row costs that do not depend on the size of the ledger:
+ * validating the input and creating a Transaction.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class ValidationBenchmark {
+
+  // Not constants, so that the JIT cannot fold the checks away.
+  public double amount = 42.5;
+  public String category = "Entertainment";
+  public String invalidCategory = "groceries";
+
+  @Benchmark
+  public boolean isValidAmount() {
+    return InputValidation.isValidAmount(amount);
+  }
+
+  @Benchmark
+  public boolean isValidCategory() {
+    return InputValidation.isValidCategory(category);
+  }
+
+  @Benchmark
+  public boolean isInvalidCategory() {
+    return InputValidation.isValidCategory(invalidCategory);
+  }
+
+  @Benchmark
+  public Transaction newTransaction() {
+    return new Transaction(amount, category);
+  }
+}
@@ -1,27 +1,82 @@
 import javax.swing.JOptionPane;
 import controller.ExpenseTrackerController;
+import controller.ImportReport;
+import metrics.ExpenseTrackerMetrics;
+import model.CategoryRegistry;
+import model.ColumnarTransactionStore;
 import model.ExpenseTrackerModel;
 import model.Transaction;
 import view.ExpenseTrackerView;
 import model.Filter.AmountFilter;
 import model.Filter.CategoryFilter;
+import model.persistence.LedgerSnapshot;
+import model.persistence.TransactionJournal;
+import model.persistence.TransactionJournal.FsyncPolicy;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 public class ExpenseTrackerApp {
 
+  private static final Logger LOGGER = Logger.getLogger("expensetracker");
+
   /**
-   * @param args
+   * @param args the batch mode options of ExpenseTrackerCli; the window opens when there are none
    */
   public static void main(String[] args) {
+    if (args.length > 0) {
+      // Batch mode, without a window. Verifying this class has already loaded some Swing
+      // classes, so where AWT is not installed ExpenseTrackerCli is run directly instead.
+      ExpenseTrackerCli.main(args);
+      return;
+    }
     
+    // -Dexpensetracker.categories=food,travel,... replaces the built-in categories
+    String categories = System.getProperty("expensetracker.categories");
+    if (categories != null) {
+      CategoryRegistry.configure(Arrays.asList(categories.split(",")));
+    }
+
     // Create MVC components
-    ExpenseTrackerModel model = new ExpenseTrackerModel();
+    // -Dexpensetracker.snapshot=<file> starts from the snapshot written on the last exit
+    LedgerSnapshot snapshot = openSnapshot();
+    ExpenseTrackerModel model;
+    if (snapshot != null) {
+      model = new ExpenseTrackerModel(snapshot.getStore());
+    } else if (Boolean.getBoolean("expensetracker.columnar")) {
+      // -Dexpensetracker.columnar=true keeps the ledger in the compact columnar store
+      model = new ExpenseTrackerModel(new ColumnarTransactionStore());
+    } else {
+      model = new ExpenseTrackerModel();
+    }
+    TransactionJournal journal = openJournal(model, snapshot == null ? 0 : snapshot.getJournalPosition());
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> saveOnExit(model, journal)));
     ExpenseTrackerView view = new ExpenseTrackerView();
     ExpenseTrackerController controller = new ExpenseTrackerController(model, view);
+    // -Dexpensetracker.historyBytes=<bytes> bounds the memory of the undo history
+    Long historyBytes = Long.getLong("expensetracker.historyBytes");
+    if (historyBytes != null) {
+      controller.getHistory().setMemoryLimit(historyBytes);
+    }
     
 
+    // Counts and latencies of the operations, readable over JMX (e.g. with JConsole)
+    ExpenseTrackerMetrics.getInstance().setLedgerSize(model::getTransactionCount);
+    ExpenseTrackerMetrics.getInstance().register();
+    // -Dexpensetracker.metricsLogSeconds=<n> also logs them every n seconds
+    Long metricsLogSeconds = Long.getLong("expensetracker.metricsLogSeconds");
+    if (metricsLogSeconds != null) {
+      ExpenseTrackerMetrics.getInstance().startLogging(metricsLogSeconds);
+    }
+
     // Initialize view
     view.setVisible(true);
 
@@ -50,7 +105,7 @@ public class ExpenseTrackerApp {
       if (categoryFilterInput != null) {
           // controller.applyCategoryFilter(categoryFilterInput);
           controller.setFilter(categoryFilter);
-          controller.applyFilter();
+          controller.applyFilterInBackground();
       }
      }catch(IllegalArgumentException exception) {
     JOptionPane.showMessageDialog(view, exception.getMessage());
@@ -65,7 +120,7 @@ public class ExpenseTrackerApp {
       AmountFilter amountFilter = new AmountFilter(amountFilterInput);
       if (amountFilterInput != 0.0) {
           controller.setFilter(amountFilter);
-          controller.applyFilter();
+          controller.applyFilterInBackground();
       }
     }catch(IllegalArgumentException exception) {
     JOptionPane.showMessageDialog(view,exception.getMessage());
@@ -87,6 +142,26 @@ public class ExpenseTrackerApp {
           }
       });
 
+      // Edit > Undo / Redo revert and re-apply the latest adds, removals and imports
+      view.addUndoChangeListener(e -> controller.undo());
+      view.addRedoChangeListener(e -> controller.redo());
+
+    // add action listener to the "Import CSV" button
+      view.addImportListener(e -> {
+          Path path = view.getImportFileInput();
+          if (path == null) {
+              return;
+          }
+          try {
+              ImportReport report = controller.importCsv(path);
+              JOptionPane.showMessageDialog(view, report.toString());
+          }
+          catch (IOException exception) {
+              JOptionPane.showMessageDialog(view, "The file could not be read: " + exception.getMessage());
+          }
+          view.toFront();
+      });
+
   view.addEventListenerToTableRows(e -> {
       model.setSelectedRows(view.getSelectedRows());
       controller.refreshUndoBtn();
@@ -94,4 +169,78 @@ public class ExpenseTrackerApp {
     
 
   }
+
+  /**
+   * Opens the snapshot named by -Dexpensetracker.snapshot, if there is one.
+   */
+  private static LedgerSnapshot openSnapshot() {
+    String path = System.getProperty("expensetracker.snapshot");
+    if (path == null || !Files.exists(Paths.get(path))) {
+      return null;
+    }
+    try {
+      return LedgerSnapshot.open(Paths.get(path));
+    } catch (IOException e) {
+      JOptionPane.showMessageDialog(null, "The snapshot could not be opened: " + e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * Replays (from the given position on) and attaches the journal named by
+   * -Dexpensetracker.journal, if any.
+   * -Dexpensetracker.fsync picks the FsyncPolicy (GROUP_COMMIT by default) and
+   * -Dexpensetracker.groupCommitMillis the group commit interval.
+   */
+  private static TransactionJournal openJournal(ExpenseTrackerModel model, long fromPosition) {
+    String path = System.getProperty("expensetracker.journal");
+    if (path == null) {
+      return null;
+    }
+    FsyncPolicy policy = FsyncPolicy.valueOf(System.getProperty("expensetracker.fsync", "GROUP_COMMIT"));
+    long groupCommitMillis = Long.getLong("expensetracker.groupCommitMillis", 10);
+    TransactionJournal journal = null;
+    try {
+      journal = TransactionJournal.open(Paths.get(path), policy, groupCommitMillis);
+      journal.replay(model, fromPosition);
+      model.setJournal(journal);
+      return journal;
+    } catch (IOException e) {
+      // The app starts with what could be replayed; the journal is kept for a later fix.
+      closeQuietly(journal);
+      JOptionPane.showMessageDialog(null, "The journal could not be opened: " + e.getMessage());
+      return null;
+    }
+  }
+
+  private static void closeQuietly(TransactionJournal journal) {
+    if (journal != null) {
+      try {
+        journal.close();
+      } catch (IOException e) {
+        // Already reported why the journal is not used
+      }
+    }
+  }
+
+  /**
+   * Writes the snapshot (if configured) with the journal length it covers, then closes the journal.
+   * No snapshot is written when the configured journal could not be opened, since the
+   * snapshot could not tell which of its records it already covers.
+   */
+  private static void saveOnExit(ExpenseTrackerModel model, TransactionJournal journal) {
+    String snapshotPath = System.getProperty("expensetracker.snapshot");
+    boolean journalMissing = journal == null && System.getProperty("expensetracker.journal") != null;
+    try {
+      long journalPosition = journal == null ? 0 : journal.checkpoint();
+      if (snapshotPath != null && !journalMissing) {
+        LedgerSnapshot.write(model, journalPosition, Paths.get(snapshotPath));
+      }
+      if (journal != null) {
+        journal.close();
+      }
+    } catch (IOException | IllegalStateException e) {
+      LOGGER.log(Level.SEVERE, "The ledger could not be saved on exit", e);
+    }
+  }
 }
@@ -0,0 +1,184 @@
+import controller.ExpenseTrackerEngine;
+import controller.ImportReport;
+import model.CategoryRegistry;
+import model.ColumnarTransactionStore;
+import model.ExpenseTrackerModel;
+import model.LedgerSummary;
+import model.Filter.AmountFilter;
+import model.Filter.AmountRangeFilter;
+import model.Filter.CategoryFilter;
+import model.Filter.TimeRangeFilter;
+import model.persistence.LedgerSnapshot;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Map;
+
+/**
+ * Batch mode of the expense tracker: ingests, filters, aggregates and exports a ledger
+ * through the ExpenseTrackerEngine, without opening a window. Run as the main class, it
+ * never loads AWT, so it runs on a server or in a nightly job without a display.
+ *
+ * ExpenseTrackerApp hands its arguments over to this class when there are any, but by
+ * then the JVM has loaded some of the Swing classes ExpenseTrackerApp refers to. Where
+ * no AWT library is installed, run this class instead.
+ */
+public class ExpenseTrackerCli {
+
+  private static final String USAGE = String.join("\n",
+      "Usage: ExpenseTrackerCli [options]",
+      "  --snapshot <file>         start from a ledger snapshot",
+      "  --columnar                keep the ledger in the compact columnar store",
+      "  --import <file.csv|->     import amount,category[,date] lines (repeatable)",
+      "  --category <name>         keep the transactions of a category",
+      "  --amount <value>          keep the transactions of an amount",
+      "  --amount-range <min:max>  keep the transactions with min <= amount <= max",
+      "  --last-days <n>           keep the transactions of the last n days",
+      "  --stats                   print the count, total, min, max and category totals",
+      "  --export <file.csv|->     write the kept transactions as CSV",
+      "Filters are combined, so only the transactions matching all of them are kept.");
+
+  /**
+   * @param args the options listed in the usage
+   */
+  public static void main(String[] args) {
+    // Nothing here needs a display; make sure nothing tries to open one.
+    System.setProperty("java.awt.headless", "true");
+    int status = run(args, System.in, System.out, System.err);
+    if (status != 0) {
+      System.exit(status);
+    }
+  }
+
+  /**
+   * Runs the options and returns the exit status: 0 on success, 1 when a file could
+   * not be read or written, 2 for invalid options. {@code --import -} reads from in.
+   */
+  static int run(String[] args, InputStream in, PrintStream out, PrintStream err) {
+    // -Dexpensetracker.categories=food,travel,... replaces the built-in categories
+    String categories = System.getProperty("expensetracker.categories");
+    if (categories != null) {
+      CategoryRegistry.configure(Arrays.asList(categories.split(",")));
+    }
+    try {
+      ExpenseTrackerEngine engine = new ExpenseTrackerEngine(openModel(args));
+      boolean stats = false;
+      String exportPath = null;
+      for (int i = 0; i < args.length; i++) {
+        switch (args[i]) {
+          case "--snapshot":
+            i++; // already opened
+            break;
+          case "--columnar":
+            break;
+          case "--import":
+            String importPath = value(args, ++i);
+            ImportReport report = "-".equals(importPath)
+                ? engine.importCsv(new InputStreamReader(in, StandardCharsets.UTF_8))
+                : engine.importCsv(Paths.get(importPath));
+            err.println(report);
+            break;
+          case "--category":
+            engine.addFilter(new CategoryFilter(value(args, ++i)));
+            break;
+          case "--amount":
+            engine.addFilter(new AmountFilter(number(value(args, ++i))));
+            break;
+          case "--amount-range":
+            String[] bounds = value(args, ++i).split(":", -1);
+            if (bounds.length != 2) {
+              throw new IllegalArgumentException("Expected --amount-range <min:max>.");
+            }
+            engine.addFilter(new AmountRangeFilter(number(bounds[0]), number(bounds[1])));
+            break;
+          case "--last-days":
+            try {
+              engine.addFilter(TimeRangeFilter.lastDays(Integer.parseInt(value(args, ++i))));
+            } catch (NumberFormatException e) {
+              throw new IllegalArgumentException("The number of days is not valid.");
+            }
+            break;
+          case "--stats":
+            stats = true;
+            break;
+          case "--export":
+            exportPath = value(args, ++i);
+            break;
+          case "--help":
+            out.println(USAGE);
+            return 0;
+          default:
+            throw new IllegalArgumentException("Unknown option " + args[i]);
+        }
+      }
+
+      BitSet rows = engine.filterRows();
+      if (stats) {
+        printStats(engine.summarize(rows), out);
+      }
+      if ("-".equals(exportPath)) {
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        engine.exportCsv(rows, writer);
+      } else if (exportPath != null) {
+        try (Writer writer = Files.newBufferedWriter(Paths.get(exportPath))) {
+          int count = engine.exportCsv(rows, writer);
+          err.println("Exported " + count + " transactions.");
+        }
+      }
+      return 0;
+    } catch (IllegalArgumentException e) {
+      err.println(e.getMessage());
+      err.println(USAGE);
+      return 2;
+    } catch (IOException e) {
+      err.println("The file could not be read or written: " + e.getMessage());
+      return 1;
+    }
+  }
+
+  private static ExpenseTrackerModel openModel(String[] args) throws IOException {
+    for (int i = 0; i < args.length; i++) {
+      if ("--snapshot".equals(args[i])) {
+        return new ExpenseTrackerModel(LedgerSnapshot.open(Paths.get(value(args, i + 1))).getStore());
+      }
+    }
+    if (Arrays.asList(args).contains("--columnar")) {
+      return new ExpenseTrackerModel(new ColumnarTransactionStore());
+    }
+    return new ExpenseTrackerModel();
+  }
+
+  private static void printStats(LedgerSummary summary, PrintStream out) {
+    out.println("count: " + summary.getCount());
+    out.println("total: " + summary.getTotal());
+    out.println("min: " + summary.getMin());
+    out.println("max: " + summary.getMax());
+    for (Map.Entry<String, Double> entry : summary.getCategoryTotals().entrySet()) {
+      out.println(entry.getKey() + ": " + entry.getValue());
+    }
+  }
+
+  private static String value(String[] args, int index) {
+    if (index >= args.length) {
+      throw new IllegalArgumentException("Missing value for " + args[index - 1]);
+    }
+    return args[index];
+  }
+
+  private static double number(String text) {
+    try {
+      return Double.parseDouble(text);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("The amount is not a number.");
+    }
+  }
+}
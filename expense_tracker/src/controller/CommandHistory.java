@@ -0,0 +1,254 @@
+package controller;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+import model.Category;
+import model.ExpenseTrackerModel;
+import model.Transaction;
+
+/**
+ * A bounded history of the adds and removals made through the controller, for undo and redo.
+ *
+ * Each entry keeps only the positions and the primitive values of the rows it touched,
+ * so undoing or redoing it costs as much as the change itself. Once the entries would
+ * take more than the memory limit, the oldest ones are forgotten. A change that would
+ * not fit at all is not captured in the first place.
+ */
+public class CommandHistory {
+
+  public static final long DEFAULT_MEMORY_LIMIT = 16L * 1024 * 1024;
+
+  private final Deque<Command> undoable = new ArrayDeque<>();
+  private final Deque<Command> redoable = new ArrayDeque<>();
+  private long memoryLimit;
+  private long memoryUsed;
+
+  public CommandHistory(long memoryLimit) {
+    setMemoryLimit(memoryLimit);
+  }
+
+  /**
+   * Changes the memory limit in bytes, forgetting the oldest entries if needed.
+   * A single change taking more than the limit (about 20 bytes per appended and 24 per
+   * removed row, so some 700,000 rows under the default limit) is not recorded, and the history before
+   * it is forgotten too, since it could no longer be undone in order. recordAdd()
+   * and recordRemove() report such a change.
+   */
+  public void setMemoryLimit(long memoryLimit) {
+    if (memoryLimit < 0) {
+      throw new IllegalArgumentException("The memory limit must not be negative.");
+    }
+    this.memoryLimit = memoryLimit;
+    trim();
+  }
+
+  public long getMemoryUsed() {
+    return memoryUsed;
+  }
+
+  public boolean canUndo() {
+    return !undoable.isEmpty();
+  }
+
+  public boolean canRedo() {
+    return !redoable.isEmpty();
+  }
+
+  /**
+   * Records that the transactions at positions first..last were appended.
+   *
+   * @return false if the append takes more than the memory limit and cannot be undone
+   */
+  public boolean recordAdd(ExpenseTrackerModel model, int first, int last) {
+    int count = last - first + 1;
+    if (count <= 0) {
+      return true;
+    }
+    if (Command.estimatedBytes(count, false) > memoryLimit) {
+      clear();
+      return false;
+    }
+    return push(Command.capture(model, first, null, count));
+  }
+
+  /**
+   * Captures the transactions about to be removed from the given rows. Pass the
+   * result to recordRemove() once the removal went through. The rows are not
+   * captured if they would take more than the memory limit.
+   */
+  public Command captureRemove(ExpenseTrackerModel model, int[] rows) {
+    int[] positions = Arrays.stream(rows)
+        .filter(row -> row >= 0 && row < model.getTransactionCount())
+        .sorted()
+        .distinct()
+        .toArray();
+    if (Command.estimatedBytes(positions.length, true) > memoryLimit) {
+      return new Command(positions);
+    }
+    return Command.capture(model, 0, positions, positions.length);
+  }
+
+  /**
+   * @return false if the removal takes more than the memory limit and cannot be undone
+   */
+  public boolean recordRemove(Command removal) {
+    if (removal.count == 0) {
+      return true;
+    }
+    if (removal.amounts == null) {
+      clear();
+      return false;
+    }
+    return push(removal);
+  }
+
+  /**
+   * Reverts the latest change.
+   *
+   * @return the reverted change, or null if there is nothing to undo
+   */
+  public Command undo(ExpenseTrackerModel model) {
+    Command command = undoable.pollLast();
+    if (command != null) {
+      command.apply(model, true);
+      redoable.addLast(command);
+    }
+    return command;
+  }
+
+  /**
+   * Applies the latest undone change again.
+   *
+   * @return the change applied, or null if there is nothing to redo
+   */
+  public Command redo(ExpenseTrackerModel model) {
+    Command command = redoable.pollLast();
+    if (command != null) {
+      command.apply(model, false);
+      undoable.addLast(command);
+    }
+    return command;
+  }
+
+  private boolean push(Command command) {
+    // A new change makes the undone ones meaningless.
+    for (Command undone : redoable) {
+      memoryUsed -= undone.estimatedBytes();
+    }
+    redoable.clear();
+    undoable.addLast(command);
+    memoryUsed += command.estimatedBytes();
+    trim();
+    return !undoable.isEmpty();
+  }
+
+  // Forgets every entry, e.g. before a change that cannot be recorded: the entries
+  // before it could no longer be undone in order.
+  private void clear() {
+    undoable.clear();
+    redoable.clear();
+    memoryUsed = 0;
+  }
+
+  private void trim() {
+    while (memoryUsed > memoryLimit && !redoable.isEmpty()) {
+      memoryUsed -= redoable.pollFirst().estimatedBytes();
+    }
+    while (memoryUsed > memoryLimit && !undoable.isEmpty()) {
+      memoryUsed -= undoable.pollFirst().estimatedBytes();
+    }
+  }
+
+  /**
+   * An append or a removal of rows, which can be applied forwards or backwards.
+   */
+  public static final class Command {
+
+    // Rough size of the object headers and array headers of an entry.
+    private static final int OVERHEAD_BYTES = 96;
+
+    // The appended rows first..first + count - 1, or the removed rows at the positions.
+    private final int first;
+    private final int[] positions;
+    private final int count;
+    // null when the rows were too many to be captured.
+    private final double[] amounts;
+    // The interned categories, and the spellings of the rows not spelled as their category
+    // was registered (null if there are none), so that rows come back as they were entered.
+    private final Category[] categories;
+    private final String[] spellings;
+    private final long[] timestamps;
+
+    private Command(int first, int[] positions, int count, double[] amounts, Category[] categories,
+                    String[] spellings, long[] timestamps) {
+      this.first = first;
+      this.positions = positions;
+      this.count = count;
+      this.amounts = amounts;
+      this.categories = categories;
+      this.spellings = spellings;
+      this.timestamps = timestamps;
+    }
+
+    // A removal whose rows were not captured.
+    private Command(int[] positions) {
+      this(0, positions, positions.length, null, null, null, null);
+    }
+
+    private static Command capture(ExpenseTrackerModel model, int first, int[] positions, int count) {
+      double[] amounts = new double[count];
+      Category[] categories = new Category[count];
+      String[] spellings = null;
+      long[] timestamps = new long[count];
+      for (int i = 0; i < count; i++) {
+        int position = positions == null ? first + i : positions[i];
+        amounts[i] = model.getAmount(position);
+        categories[i] = model.getCategoryHandle(position);
+        String spelling = model.getCategory(position);
+        if (!spelling.equals(categories[i].getName())) {
+          if (spellings == null) {
+            spellings = new String[count];
+          }
+          spellings[i] = spelling;
+        }
+        timestamps[i] = model.getEpochMillis(position);
+      }
+      return new Command(first, positions, count, amounts, categories, spellings, timestamps);
+    }
+
+    private void apply(ExpenseTrackerModel model, boolean backwards) {
+      int[] rows = positions;
+      if (rows == null) {
+        rows = new int[count];
+        for (int i = 0; i < count; i++) {
+          rows[i] = first + i;
+        }
+      }
+      // Undoing an append removes rows, and undoing a removal puts them back.
+      if ((positions != null) != backwards) {
+        model.removeAt(rows);
+      } else {
+        List<Transaction> restored = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+          String category = spellings != null && spellings[i] != null
+              ? spellings[i] : categories[i].getName();
+          restored.add(new Transaction(amounts[i], category, timestamps[i]));
+        }
+        model.insertAt(rows, restored);
+      }
+    }
+
+    private long estimatedBytes() {
+      return estimatedBytes(count, positions != null) + (spellings == null ? 0 : 4L * count);
+    }
+
+    // An amount, a category reference and a timestamp per row, and the position of a removed row.
+    private static long estimatedBytes(int count, boolean removal) {
+      return OVERHEAD_BYTES + (removal ? 4L + 8 + 4 + 8 : 8L + 4 + 8) * count;
+    }
+  }
+}
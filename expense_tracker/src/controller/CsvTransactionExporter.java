@@ -0,0 +1,43 @@
+package controller;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.BitSet;
+
+import model.ExpenseTrackerModel;
+import model.Transaction;
+
+/**
+ * Writes transactions of an ExpenseTrackerModel as CSV lines of the form
+ * {@code amount,category,dd-MM-yyyy HH:mm}, after an {@code amount,category,date}
+ * header, so that CsvTransactionImporter reads them back.
+ *
+ * The rows are read from the model's columns one at a time, so exporting a large
+ * ledger does not create a Transaction object per row.
+ */
+public class CsvTransactionExporter {
+
+  public static final String HEADER = "amount,category,date";
+
+  /**
+   * @return the number of transactions written
+   */
+  public int exportFrom(ExpenseTrackerModel model, BitSet rows, Writer output) throws IOException {
+    Writer out = output instanceof BufferedWriter ? output : new BufferedWriter(output);
+    out.write(HEADER);
+    out.write('\n');
+    int count = 0;
+    for (int i = rows.nextSetBit(0); i >= 0; i = rows.nextSetBit(i + 1)) {
+      out.write(Double.toString(model.getAmount(i)));
+      out.write(',');
+      out.write(model.getCategory(i));
+      out.write(',');
+      out.write(Transaction.formatTimestamp(model.getEpochMillis(i)));
+      out.write('\n');
+      count++;
+    }
+    out.flush();
+    return count;
+  }
+}
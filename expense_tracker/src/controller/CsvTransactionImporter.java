@@ -0,0 +1,127 @@
+package controller;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import model.ExpenseTrackerModel;
+import model.Transaction;
+
+/**
+ * Streams transactions from CSV lines of the form
+ * {@code amount,category[,dd-MM-yyyy HH:mm]} into an ExpenseTrackerModel.
+ *
+ * The input is read in chunks so files of any size can be imported. The lines of
+ * a chunk are validated in parallel with the InputValidation rules, then the valid
+ * ones are added to the model as one batch, in file order. A first line whose first field
+ * is {@code amount} (in any case), as written by CsvTransactionExporter, is taken as a
+ * header and skipped; any other line that does not parse is rejected.
+ */
+public class CsvTransactionImporter {
+
+  public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+  private final int chunkSize;
+
+  public CsvTransactionImporter() {
+    this(DEFAULT_CHUNK_SIZE);
+  }
+
+  public CsvTransactionImporter(int chunkSize) {
+    if (chunkSize <= 0) {
+      throw new IllegalArgumentException("The chunk size must be positive.");
+    }
+    this.chunkSize = chunkSize;
+  }
+
+  public ImportReport importInto(Reader input, ExpenseTrackerModel model) throws IOException {
+    ImportReport report = new ImportReport();
+    BufferedReader reader = input instanceof BufferedReader
+        ? (BufferedReader) input : new BufferedReader(input);
+    List<String> chunk = new ArrayList<>(chunkSize);
+    long firstLineNumber = 1;
+    String line = reader.readLine();
+    if (line != null && isHeader(line)) {
+      firstLineNumber++;
+      line = reader.readLine();
+    }
+    while (line != null) {
+      chunk.add(line);
+      if (chunk.size() == chunkSize) {
+        commit(chunk, firstLineNumber, model, report);
+        firstLineNumber += chunk.size();
+        chunk.clear();
+      }
+      line = reader.readLine();
+    }
+    commit(chunk, firstLineNumber, model, report);
+    return report;
+  }
+
+  private void commit(List<String> chunk, long firstLineNumber, ExpenseTrackerModel model,
+                      ImportReport report) {
+    Transaction[] parsed = new Transaction[chunk.size()];
+    String[] reasons = new String[chunk.size()];
+    IntStream.range(0, chunk.size()).parallel().forEach(i -> {
+      try {
+        parsed[i] = parse(chunk.get(i));
+      } catch (IllegalArgumentException e) {
+        reasons[i] = e.getMessage();
+      }
+    });
+    List<Transaction> valid = new ArrayList<>(parsed.length);
+    for (int i = 0; i < parsed.length; i++) {
+      if (parsed[i] != null) {
+        valid.add(parsed[i]);
+      } else if (!chunk.get(i).trim().isEmpty()) {
+        report.addRejection(firstLineNumber + i, chunk.get(i), reasons[i]);
+      }
+    }
+    model.addTransactions(valid);
+    report.addImported(valid.size());
+  }
+
+  // Throws IllegalArgumentException with the reason when the line is not a valid transaction.
+  static Transaction parse(String line) {
+    String[] fields = line.split(",", -1);
+    if (fields.length < 2 || fields.length > 3) {
+      throw new IllegalArgumentException("Expected amount,category[,date].");
+    }
+    double amount;
+    try {
+      amount = Double.parseDouble(unquote(fields[0]));
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("The amount is not a number.");
+    }
+    String category = unquote(fields[1]);
+    if (fields.length == 2) {
+      return new Transaction(amount, category);
+    }
+    long epochMillis;
+    try {
+      epochMillis = LocalDateTime.parse(unquote(fields[2]), Transaction.dateTimeFormatter)
+          .atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    } catch (DateTimeParseException e) {
+      throw new IllegalArgumentException("The date is not valid.");
+    }
+    return new Transaction(amount, category, epochMillis);
+  }
+
+  private static boolean isHeader(String line) {
+    return unquote(line.split(",", -1)[0]).equalsIgnoreCase("amount");
+  }
+
+  private static String unquote(String field) {
+    String trimmed = field.trim();
+    if (trimmed.length() >= 2 && trimmed.startsWith("\"") && trimmed.endsWith("\"")) {
+      return trimmed.substring(1, trimmed.length() - 1).trim();
+    }
+    return trimmed;
+  }
+}
@@ -2,93 +2,367 @@ package controller;
 
 import view.ExpenseTrackerView;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import javax.swing.*;
 
+import metrics.ExpenseTrackerMetrics;
+import metrics.Operation;
 import model.ExpenseTrackerModel;
+import model.ExpenseTrackerModelListener;
 import model.Transaction;
 import model.Filter.TransactionFilter;
 
+/**
+ * Connects the view to an ExpenseTrackerEngine: the engine does the work and the
+ * controller shows the results, filtering in the background to keep the EDT free.
+ */
 public class ExpenseTrackerController {
   
   private ExpenseTrackerModel model;
   private ExpenseTrackerView view;
   /** 
    * The Controller is applying the Strategy design pattern.
-   * This is the has-a relationship with the Strategy class 
-   * being used in the applyFilter method.
+   * The engine holds the Strategy class being used in the applyFilter method.
    */
-  private TransactionFilter filter;
+  private final ExpenseTrackerEngine engine;
+  // The background filtering still running, and the number of the latest filter request.
+  private SwingWorker<BitSet, Void> pendingFilter;
+  private int filterGeneration;
+  // Whether the highlighted rows are those of the current filter over the current rows,
+  // so that they can follow a change of the ledger without filtering it again.
+  private boolean highlightsCurrent;
+  private final ExpenseTrackerMetrics metrics = ExpenseTrackerMetrics.getInstance();
 
   public ExpenseTrackerController(ExpenseTrackerModel model, ExpenseTrackerView view) {
-    this.model = model;
+    this(new ExpenseTrackerEngine(model), view);
+  }
+
+  public ExpenseTrackerController(ExpenseTrackerEngine engine, ExpenseTrackerView view) {
+    this.engine = engine;
+    this.model = engine.getModel();
     this.view = view;
+    // The table reads its rows straight from the model, and follows its changes
+    view.getTableModel().setSource(model);
+    // The highlighted rows follow each change, and a batch of changes is filtered again as a whole
+    model.addModelListener(new ExpenseTrackerModelListener() {
+      @Override
+      public void transactionsAppended(int first, int last) {
+        // e.g. rows drained by a ConcurrentExpenseTrackerModel, which the engine records
+        historyChanged();
+        if (followChange()) {
+          BitSet rows = view.getHighlightedRows();
+          for (int i = first; i <= last; i++) {
+            highlightIfMatches(rows, i);
+          }
+          view.highlightRows(rows);
+        }
+      }
+
+      @Override
+      public void transactionsInserted(int[] positions) {
+        if (followChange()) {
+          BitSet rows = shiftForInserted(view.getHighlightedRows(), positions);
+          for (int position : positions) {
+            highlightIfMatches(rows, position);
+          }
+          view.highlightRows(rows);
+        }
+      }
+
+      @Override
+      public void transactionsRemoved(int[] positions) {
+        if (followChange()) {
+          view.highlightRows(shiftForRemoved(view.getHighlightedRows(), positions));
+        }
+      }
+
+      @Override
+      public void batchFinished() {
+        if (engine.getFilter() != null) {
+          applyFilterInBackground();
+        }
+      }
+    });
   }
 
   public void setFilter(TransactionFilter filter) {
     // Sets the Strategy class being used in the applyFilter method.
-    this.filter = filter;
+    engine.setFilter(filter);
+    highlightsCurrent = false;
+  }
+
+  /**
+   * Narrows the current filter down with another one, so that only the
+   * transactions matched by both are highlighted.
+   */
+  public void addFilter(TransactionFilter filter) {
+    engine.addFilter(filter);
+    highlightsCurrent = false;
   }
 
   public void refresh() {
-    List<Transaction> transactions = model.getTransactions();
-    view.refreshTable(transactions);
+    // Recorded as REFRESH by the table model once it re-read the rows at the end of
+    // the frame, which is when the refresh reaches the screen.
+    view.refreshTable();
+  }
+
+  public ExpenseTrackerEngine getEngine() {
+    return engine;
+  }
+
+  public CommandHistory getHistory() {
+    return engine.getHistory();
   }
 
   public boolean addTransaction(double amount, String category) {
-    if (!InputValidation.isValidAmount(amount)) {
-      return false;
+    long start = System.nanoTime();
+    try {
+      if (!engine.addTransaction(amount, category)) {
+        return false;
+      }
+      commandApplied();
+      return true;
+    } finally {
+      metrics.record(Operation.ADD_TRANSACTION, start);
     }
-    if (!InputValidation.isValidCategory(category)) {
-      return false;
+  }
+
+  /**
+   * Adds a batch of already created transactions as one change, so that the
+   * table is updated and the current filter re-applied once.
+   */
+  public void addTransactions(Collection<Transaction> batch) {
+    if (batch.isEmpty()) {
+      return;
+    }
+    long start = System.nanoTime();
+    try {
+      engine.addTransactions(batch);
+      commandApplied();
+    } finally {
+      metrics.record(Operation.ADD_TRANSACTIONS, start);
+    }
+  }
+
+  /**
+   * Removes the transactions at the given rows in one pass, so that the
+   * table is updated and the current filter re-applied once.
+   */
+  public void removeTransactions(int[] rows) {
+    long start = System.nanoTime();
+    try {
+      remove(rows);
+    } finally {
+      metrics.record(Operation.REMOVE_TRANSACTIONS, start);
+    }
+  }
+
+  /**
+   * Imports the transactions of a CSV file in bulk, as one batch of changes
+   * and one step of the history.
+   */
+  public ImportReport importCsv(Path path) throws IOException {
+    long start = System.nanoTime();
+    try {
+      return engine.importCsv(path);
+    } finally {
+      commandApplied();
+      metrics.record(Operation.IMPORT_CSV, start);
     }
-    
-    Transaction t = new Transaction(amount, category);
-    model.addTransaction(t);
-    view.getTableModel().addRow(new Object[]{t.getAmount(), t.getCategory(), t.getTimestamp()});
-    refresh();
-    return true;
   }
 
   public void applyFilter() {
+    cancelPendingFilter();
     //null check for filter
-    if(filter!=null){
-      // Use the Strategy class to perform the desired filtering
-      List<Transaction> transactions = model.getTransactions();
-      List<Transaction> filteredTransactions = filter.filter(transactions);
-      List<Integer> rowIndexes = new ArrayList<>();
-      for (Transaction t : filteredTransactions) {
-        int rowIndex = transactions.indexOf(t);
-        if (rowIndex != -1) {
-          rowIndexes.add(rowIndex);
-        }
-      }
+    if(engine.getFilter()!=null){
+      long start = System.nanoTime();
+      // Use the Strategy class to find the positions of the matching rows
+      BitSet rowIndexes = engine.filterRows();
       view.highlightRows(rowIndexes);
+      highlightsCurrent = true;
+      metrics.record(Operation.APPLY_FILTER, start);
     }
     else{
-      JOptionPane.showMessageDialog(view, "No filter applied");
-      view.toFront();}
+      view.showMessage("No filter applied");}
 
   }
 
-  public void applyUndo(int[] rows){
-    List<Transaction> transactions = model.getTransactions();
-    List<Transaction> transactionsToRemove = new ArrayList<>();
-    for(int row : rows){
-      transactionsToRemove.add(transactions.get(row));
+  /**
+   * Applies the current filter without holding up the EDT. Filters answered from
+   * the model's indexes run right away; scanning filters run on a SwingWorker over
+   * a snapshot of the ledger, and only the result of the latest request reaches the
+   * view. Requests still running when the filter or the ledger changes are cancelled.
+   *
+   * @return the rows to be highlighted, once computed
+   */
+  public Future<BitSet> applyFilterInBackground() {
+    TransactionFilter filter = engine.getFilter();
+    if (filter == null) {
+      applyFilter();
+      return CompletableFuture.completedFuture(new BitSet());
     }
-    for(Transaction transaction: transactionsToRemove){
-      model.removeTransaction(transaction);
+    cancelPendingFilter();
+    int generation = filterGeneration;
+    // Timed from the request until the rows are highlighted
+    long start = System.nanoTime();
+    if (filter.isIndexed()) {
+      BitSet rowIndexes = engine.filterRows();
+      view.highlightRows(rowIndexes);
+      highlightsCurrent = true;
+      metrics.record(Operation.APPLY_FILTER, start);
+      return CompletableFuture.completedFuture(rowIndexes);
     }
-    refresh();
+    TransactionFilter scanned = filter;
+    List<Transaction> snapshot = model.getTransactions();
+    SwingWorker<BitSet, Void> worker = new SwingWorker<BitSet, Void>() {
+      @Override
+      protected BitSet doInBackground() {
+        return scanned.filterRows(snapshot);
+      }
 
-    // if filter is not null we apply the filter to remove filter from rows we just removed
-    if(filter != null){
-      applyFilter();
+      @Override
+      protected void done() {
+        // Superseded by a later request or a change of the ledger
+        if (isCancelled() || generation != filterGeneration) {
+          return;
+        }
+        pendingFilter = null;
+        BitSet rows;
+        try {
+          rows = get();
+        } catch (InterruptedException | ExecutionException e) {
+          // Nothing is highlighted rather than rows of an earlier filter
+          Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+          view.highlightRows(new BitSet());
+          highlightsCurrent = false;
+          view.showMessage("Filtering failed: " + cause.getMessage());
+          return;
+        }
+        view.highlightRows(rows);
+        highlightsCurrent = true;
+        metrics.record(Operation.APPLY_FILTER, start);
+      }
+    };
+    pendingFilter = worker;
+    worker.execute();
+    return worker;
+  }
+
+  /**
+   * Reverts the latest add, removal or import.
+   *
+   * @return false if there was nothing to undo
+   */
+  public boolean undo() {
+    return historyApplied(engine.undo());
+  }
+
+  /**
+   * Applies the latest undone add, removal or import again.
+   *
+   * @return false if there was nothing to redo
+   */
+  public boolean redo() {
+    return historyApplied(engine.redo());
+  }
+
+  private boolean historyApplied(boolean applied) {
+    if (!applied) {
+      return false;
     }
+    // The table and the filter follow through the model listeners
+    commandApplied();
+    return true;
+  }
 
+  // Whether the highlighted rows can follow a change of the ledger row by row. Not while
+  // a batch runs, since it is filtered again at its end; and if the highlighted rows are
+  // not those of the current filter yet, the ledger is filtered again instead.
+  private boolean followChange() {
+    if (engine.getFilter() == null || model.isInBatch()) {
+      return false;
+    }
+    if (!highlightsCurrent || pendingFilter != null) {
+      applyFilterInBackground();
+      return false;
+    }
+    return true;
+  }
+
+  private void highlightIfMatches(BitSet rows, int position) {
+    if (engine.getFilter().matches(model.getTransaction(position))) {
+      rows.set(position);
+    }
+  }
+
+  // Moves the rows down past the rows inserted at the given positions
+  // (ascending, as they are after the insertion).
+  private static BitSet shiftForInserted(BitSet rows, int[] inserted) {
+    BitSet shifted = new BitSet();
+    int before = 0;
+    for (int i = rows.nextSetBit(0); i >= 0; i = rows.nextSetBit(i + 1)) {
+      // An insertion at q with rank r has q - r old rows before it
+      while (before < inserted.length && inserted[before] - before <= i) {
+        before++;
+      }
+      shifted.set(i + before);
+    }
+    return shifted;
+  }
+
+  // Drops the rows at the removed positions (ascending) and moves the others up past them.
+  private static BitSet shiftForRemoved(BitSet rows, int[] removed) {
+    BitSet shifted = new BitSet();
+    int before = 0;
+    for (int i = rows.nextSetBit(0); i >= 0; i = rows.nextSetBit(i + 1)) {
+      while (before < removed.length && removed[before] < i) {
+        before++;
+      }
+      if (before == removed.length || removed[before] != i) {
+        shifted.set(i - before);
+      }
+    }
+    return shifted;
+  }
+
+  private void historyChanged() {
+    CommandHistory history = engine.getHistory();
+    view.setHistoryEnabled(history.canUndo(), history.canRedo());
+  }
+
+  // The user's own command shows in the table right away, while appends made
+  // elsewhere (e.g. drained in bursts) reach it at the end of the frame.
+  private void remove(int[] rows) {
+    engine.removeTransactions(rows);
+    commandApplied();
+  }
+
+  private void commandApplied() {
+    historyChanged();
+    view.getTableModel().flush();
+  }
+
+  private void cancelPendingFilter() {
+    if (pendingFilter != null) {
+      pendingFilter.cancel(true);
+      pendingFilter = null;
+    }
+    filterGeneration++;
+  }
+
+  public void applyUndo(int[] rows){
+    // The selected rows are the positions of the transactions to remove
+    long start = System.nanoTime();
+    remove(rows);
+    metrics.record(Operation.APPLY_UNDO, start);
   }
 
   public void refreshUndoBtn(){
@@ -0,0 +1,216 @@
+package controller;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.Collection;
+
+import model.ExpenseTrackerModel;
+import model.ExpenseTrackerModelListener;
+import model.LedgerSummary;
+import model.Transaction;
+import model.Filter.AndFilter;
+import model.Filter.TransactionFilter;
+
+/**
+ * The expense tracker without a user interface: validation, bulk import, filtering,
+ * aggregation, export and the undo history over an ExpenseTrackerModel.
+ *
+ * Nothing here touches Swing or AWT, so it runs on a server or in a batch job without
+ * a display. The ExpenseTrackerController drives an engine and shows the results in the view.
+ */
+public class ExpenseTrackerEngine {
+
+  private final ExpenseTrackerModel model;
+  private TransactionFilter filter;
+  // Undo and redo of the adds, removals and imports.
+  private final CommandHistory history = new CommandHistory(CommandHistory.DEFAULT_MEMORY_LIMIT);
+  // Whether the engine itself is changing the model; its changes are recorded one step each.
+  private boolean changing;
+
+  public ExpenseTrackerEngine(ExpenseTrackerModel model) {
+    this.model = model;
+    model.addModelListener(new ExpenseTrackerModelListener() {
+      @Override
+      public void transactionsAppended(int first, int last) {
+        // Rows appended by someone else, e.g. drained by a ConcurrentExpenseTrackerModel
+        if (!changing) {
+          history.recordAdd(model, first, last);
+        }
+      }
+    });
+  }
+
+  public ExpenseTrackerModel getModel() {
+    return model;
+  }
+
+  public CommandHistory getHistory() {
+    return history;
+  }
+
+  public TransactionFilter getFilter() {
+    return filter;
+  }
+
+  public void setFilter(TransactionFilter filter) {
+    this.filter = filter;
+  }
+
+  /**
+   * Narrows the current filter down with another one, so that only the
+   * transactions matched by both are selected.
+   */
+  public void addFilter(TransactionFilter filter) {
+    this.filter = this.filter == null ? filter : new AndFilter(this.filter, filter);
+  }
+
+  /**
+   * Validates and adds a single transaction.
+   *
+   * @return false if the amount or the category is not valid
+   */
+  public boolean addTransaction(double amount, String category) {
+    if (!InputValidation.isValidAmount(amount)) {
+      return false;
+    }
+    if (!InputValidation.isValidCategory(category)) {
+      return false;
+    }
+
+    Transaction t = new Transaction(amount, category);
+    changing = true;
+    try {
+      model.addTransaction(t);
+    } finally {
+      changing = false;
+    }
+    int row = model.getTransactionCount() - 1;
+    history.recordAdd(model, row, row);
+    return true;
+  }
+
+  /**
+   * Adds a batch of already created transactions as one change and one step of the history.
+   */
+  public void addTransactions(Collection<Transaction> batch) {
+    if (batch.isEmpty()) {
+      return;
+    }
+    int first = model.getTransactionCount();
+    changing = true;
+    try {
+      model.addTransactions(batch);
+    } finally {
+      changing = false;
+    }
+    history.recordAdd(model, first, model.getTransactionCount() - 1);
+  }
+
+  /**
+   * Removes the transactions at the given rows (ascending) in one pass.
+   */
+  public void removeTransactions(int[] rows) {
+    CommandHistory.Command removal = history.captureRemove(model, rows);
+    changing = true;
+    try {
+      model.removeAt(rows);
+    } finally {
+      changing = false;
+    }
+    history.recordRemove(removal);
+  }
+
+  /**
+   * Imports the transactions of a CSV file in bulk, as one batch of changes
+   * and one step of the history.
+   */
+  public ImportReport importCsv(Path path) throws IOException {
+    try (Reader reader = Files.newBufferedReader(path)) {
+      return importCsv(reader);
+    }
+  }
+
+  /**
+   * Imports CSV lines of the form {@code amount,category[,dd-MM-yyyy HH:mm]}
+   * read from the given reader, see importCsv(Path).
+   */
+  public ImportReport importCsv(Reader reader) throws IOException {
+    int first = model.getTransactionCount();
+    ImportReport report = null;
+    changing = true;
+    model.beginBatch();
+    try {
+      report = new CsvTransactionImporter().importInto(reader, model);
+      return report;
+    } finally {
+      model.endBatch();
+      changing = false;
+      int last = model.getTransactionCount() - 1;
+      // Recorded even if the import failed half-way, since the rows read so far were added
+      if (last >= first && !history.recordAdd(model, first, last) && report != null) {
+        report.setUndoable(false);
+      }
+    }
+  }
+
+  /**
+   * Returns the positions of the transactions matched by the current filter,
+   * or of every transaction when no filter is set.
+   */
+  public BitSet filterRows() {
+    if (filter == null) {
+      BitSet rows = new BitSet(model.getTransactionCount());
+      rows.set(0, model.getTransactionCount());
+      return rows;
+    }
+    return filter.filterRows(model);
+  }
+
+  /**
+   * Adds up the transactions at the given rows.
+   */
+  public LedgerSummary summarize(BitSet rows) {
+    return model.summarize(rows);
+  }
+
+  /**
+   * Writes the transactions at the given rows as CSV lines that importCsv reads back.
+   *
+   * @return the number of transactions written
+   */
+  public int exportCsv(BitSet rows, Writer out) throws IOException {
+    return new CsvTransactionExporter().exportFrom(model, rows, out);
+  }
+
+  /**
+   * Reverts the latest add, removal or import.
+   *
+   * @return false if there was nothing to undo
+   */
+  public boolean undo() {
+    changing = true;
+    try {
+      return history.undo(model) != null;
+    } finally {
+      changing = false;
+    }
+  }
+
+  /**
+   * Applies the latest undone add, removal or import again.
+   *
+   * @return false if there was nothing to redo
+   */
+  public boolean redo() {
+    changing = true;
+    try {
+      return history.redo(model) != null;
+    } finally {
+      changing = false;
+    }
+  }
+}
@@ -0,0 +1,105 @@
+package controller;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of a bulk import: how many rows were added, which lines were rejected
+ * and whether the import can be undone. Only the first MAX_DETAILED_REJECTIONS
+ * rejected lines are kept in detail.
+ */
+public class ImportReport {
+
+  public static final int MAX_DETAILED_REJECTIONS = 1000;
+
+  private int importedCount;
+  private int rejectedCount;
+  private final List<Rejection> rejections = new ArrayList<>();
+  private boolean undoable = true;
+
+  public int getImportedCount() {
+    return importedCount;
+  }
+
+  public int getRejectedCount() {
+    return rejectedCount;
+  }
+
+  public List<Rejection> getRejections() {
+    return Collections.unmodifiableList(rejections);
+  }
+
+  /**
+   * Whether the import is in the undo history; an import larger than the
+   * history's memory limit is not, see CommandHistory.setMemoryLimit().
+   */
+  public boolean isUndoable() {
+    return undoable;
+  }
+
+  void setUndoable(boolean undoable) {
+    this.undoable = undoable;
+  }
+
+  void addImported(int count) {
+    importedCount += count;
+  }
+
+  void addRejection(long lineNumber, String line, String reason) {
+    rejectedCount++;
+    if (rejections.size() < MAX_DETAILED_REJECTIONS) {
+      rejections.add(new Rejection(lineNumber, line, reason));
+    }
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder text = new StringBuilder();
+    text.append("Imported ").append(importedCount).append(" transactions, rejected ")
+        .append(rejectedCount).append(" lines.");
+    for (Rejection rejection : rejections) {
+      text.append('\n').append(rejection);
+    }
+    if (rejectedCount > rejections.size()) {
+      text.append("\n...");
+    }
+    if (!undoable) {
+      text.append("\nThe import is too large to be undone.");
+    }
+    return text.toString();
+  }
+
+  /**
+   * A line of the imported file that did not pass the input validation.
+   */
+  public static class Rejection {
+
+    private final long lineNumber;
+    private final String line;
+    private final String reason;
+
+    Rejection(long lineNumber, String line, String reason) {
+      this.lineNumber = lineNumber;
+      this.line = line;
+      this.reason = reason;
+    }
+
+    public long getLineNumber() {
+      return lineNumber;
+    }
+
+    public String getLine() {
+      return line;
+    }
+
+    public String getReason() {
+      return reason;
+    }
+
+    @Override
+    public String toString() {
+      return "Line " + lineNumber + ": " + reason + " (" + line + ")";
+    }
+  }
+}
@@ -1,11 +1,16 @@
 package controller;
 
-import java.util.Arrays;
+import model.Category;
+import model.CategoryRegistry;
 
 public class InputValidation {
 
   public static boolean isValidAmount(double amount) {
     
+    // NaN fails every comparison below, so reject it and the infinities first
+    if (!Double.isFinite(amount)) {
+      return false;
+    }
     // Check range
     if(amount >1000) {
       return false;
@@ -20,28 +25,17 @@ public class InputValidation {
   }
 
   public static boolean isValidCategory(String category) {
+    // The registry rejects null, empty, non-letter and unregistered input
+    // without compiling a regex or allocating.
+    return lookupCategory(category) != null;
+  }
 
-    if(category == null) {
-      return false; 
-    }
-  
-    if(category.trim().isEmpty()) {
-      return false;
-    }
-
-    if(!category.matches("[a-zA-Z]+")) {
-      return false;
-    }
-
-    String[] validWords = {"food", "travel", "bills", "entertainment", "other"};
-
-    if(!Arrays.asList(validWords).contains(category.toLowerCase())) {
-      // invalid word  
-      return false;
-    }
-  
-    return true;
-  
+  /**
+   * Returns the interned handle of the given category (ignoring case),
+   * or null if it is not a valid category.
+   */
+  public static Category lookupCategory(String category) {
+    return CategoryRegistry.getInstance().lookup(category);
   }
 
 }
\ No newline at end of file
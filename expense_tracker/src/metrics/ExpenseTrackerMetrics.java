@@ -0,0 +1,154 @@
+package metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+import java.util.logging.Logger;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Counts and latency histograms of the controller and view operations, plus the
+ * size of the ledger and the heap used per row.
+ *
+ * The callers time an operation with {@code long start = System.nanoTime();} and
+ * {@code record(operation, start)} once it is done. Recording is lock-free, see
+ * LatencyHistogram. The numbers are read through the platform MBean server (e.g.
+ * with JConsole) once register() was called, or logged periodically with startLogging.
+ */
+public class ExpenseTrackerMetrics implements ExpenseTrackerMetricsMXBean {
+
+  public static final String OBJECT_NAME = "expensetracker:type=Metrics";
+
+  private static final Logger LOGGER = Logger.getLogger("expensetracker.metrics");
+
+  private static final ExpenseTrackerMetrics instance = new ExpenseTrackerMetrics();
+
+  private final Map<Operation, LatencyHistogram> histograms = new EnumMap<>(Operation.class);
+  private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+  private volatile IntSupplier ledgerSize = () -> 0;
+  private ScheduledExecutorService logger;
+
+  ExpenseTrackerMetrics() {
+    for (Operation operation : Operation.values()) {
+      histograms.put(operation, new LatencyHistogram());
+    }
+  }
+
+  public static ExpenseTrackerMetrics getInstance() {
+    return instance;
+  }
+
+  /**
+   * Records an operation that started at the given System.nanoTime().
+   */
+  public void record(Operation operation, long startNanos) {
+    histograms.get(operation).record(System.nanoTime() - startNanos);
+  }
+
+  public LatencyHistogram getHistogram(Operation operation) {
+    return histograms.get(operation);
+  }
+
+  /**
+   * Sets where the number of transactions is read from, e.g. the model's getTransactionCount.
+   * The application sets it once for its ledger; the supplier is kept for as long as the JVM runs.
+   */
+  public void setLedgerSize(IntSupplier ledgerSize) {
+    this.ledgerSize = ledgerSize;
+  }
+
+  @Override
+  public List<OperationStats> getOperations() {
+    List<OperationStats> operations = new ArrayList<>(histograms.size());
+    for (Map.Entry<Operation, LatencyHistogram> entry : histograms.entrySet()) {
+      operations.add(new OperationStats(entry.getKey(), entry.getValue()));
+    }
+    return operations;
+  }
+
+  @Override
+  public int getLedgerSize() {
+    return ledgerSize.getAsInt();
+  }
+
+  @Override
+  public long getHeapUsedBytes() {
+    return memory.getHeapMemoryUsage().getUsed();
+  }
+
+  @Override
+  public double getHeapBytesPerRow() {
+    int rows = getLedgerSize();
+    return rows == 0 ? 0 : (double) getHeapUsedBytes() / rows;
+  }
+
+  @Override
+  public void reset() {
+    for (LatencyHistogram histogram : histograms.values()) {
+      histogram.reset();
+    }
+  }
+
+  /**
+   * Registers the metrics with the platform MBean server, once.
+   */
+  public synchronized void register() {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    try {
+      server.registerMBean(this, new ObjectName(OBJECT_NAME));
+    } catch (InstanceAlreadyExistsException e) {
+      // Already registered
+    } catch (JMException e) {
+      throw new IllegalStateException("The metrics could not be registered", e);
+    }
+  }
+
+  /**
+   * Logs the metrics every given number of seconds, on a daemon thread.
+   */
+  public synchronized void startLogging(long periodSeconds) {
+    if (periodSeconds <= 0) {
+      throw new IllegalArgumentException("The logging period must be positive.");
+    }
+    stopLogging();
+    logger = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread thread = new Thread(r, "expensetracker-metrics");
+      thread.setDaemon(true);
+      return thread;
+    });
+    logger.scheduleAtFixedRate(() -> LOGGER.info(toString()), periodSeconds, periodSeconds,
+        TimeUnit.SECONDS);
+  }
+
+  public synchronized void stopLogging() {
+    if (logger != null) {
+      logger.shutdownNow();
+      logger = null;
+    }
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder text = new StringBuilder();
+    text.append("ledger=").append(getLedgerSize()).append(" rows, heap=")
+        .append(getHeapUsedBytes() / 1024).append(" KiB (")
+        .append(Math.round(getHeapBytesPerRow())).append(" bytes/row)");
+    for (OperationStats operation : getOperations()) {
+      if (operation.getCount() > 0) {
+        text.append('\n').append(operation);
+      }
+    }
+    return text.toString();
+  }
+}
@@ -0,0 +1,24 @@
+package metrics;
+
+import java.util.List;
+
+/**
+ * The management interface of ExpenseTrackerMetrics, registered with the platform
+ * MBean server as {@value ExpenseTrackerMetrics#OBJECT_NAME}.
+ */
+public interface ExpenseTrackerMetricsMXBean {
+
+  public List<OperationStats> getOperations();
+
+  public int getLedgerSize();
+
+  public long getHeapUsedBytes();
+
+  /**
+   * The heap in use divided by the number of transactions, or 0 for an empty ledger.
+   * This includes everything else on the heap, so it is an upper bound of the cost of a row.
+   */
+  public double getHeapBytesPerRow();
+
+  public void reset();
+}
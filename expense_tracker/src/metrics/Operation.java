@@ -0,0 +1,21 @@
+package metrics;
+
+/**
+ * The user-facing operations whose latency is recorded by ExpenseTrackerMetrics.
+ */
+public enum Operation {
+  ADD_TRANSACTION,
+  APPLY_FILTER,
+  APPLY_UNDO,
+  /** From a refresh request until the table re-read its rows, including the frame's wait. */
+  REFRESH,
+  /** The table re-reading its rows once the frame ends. */
+  REFRESH_TABLE,
+  HIGHLIGHT_ROWS,
+  /** Adding a batch of transactions as one change. */
+  ADD_TRANSACTIONS,
+  /** Removing the transactions at a set of rows as one change. */
+  REMOVE_TRANSACTIONS,
+  /** Importing a CSV file, from reading it until the table is updated. */
+  IMPORT_CSV
+}
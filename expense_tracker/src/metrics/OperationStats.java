@@ -0,0 +1,56 @@
+package metrics;
+
+/**
+ * The recordings of one Operation at the time they were read: how often it ran
+ * and how long it took, in milliseconds. Shown as a composite value over JMX.
+ */
+public class OperationStats {
+
+  private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+  private final String name;
+  private final long count;
+  private final double meanMillis;
+  private final double p50Millis;
+  private final double p99Millis;
+  private final double maxMillis;
+
+  OperationStats(Operation operation, LatencyHistogram histogram) {
+    this.name = operation.name();
+    this.count = histogram.getCount();
+    this.meanMillis = histogram.getMeanNanos() / NANOS_PER_MILLI;
+    this.p50Millis = histogram.getPercentileNanos(0.5) / NANOS_PER_MILLI;
+    this.p99Millis = histogram.getPercentileNanos(0.99) / NANOS_PER_MILLI;
+    this.maxMillis = histogram.getMaxNanos() / NANOS_PER_MILLI;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  public double getMeanMillis() {
+    return meanMillis;
+  }
+
+  public double getP50Millis() {
+    return p50Millis;
+  }
+
+  public double getP99Millis() {
+    return p99Millis;
+  }
+
+  public double getMaxMillis() {
+    return maxMillis;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s count=%d mean=%.3fms p50=%.3fms p99=%.3fms max=%.3fms",
+        name, count, meanMillis, p50Millis, p99Millis, maxMillis);
+  }
+}
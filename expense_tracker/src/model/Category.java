@@ -0,0 +1,33 @@
+package model;
+
+/**
+ * An interned transaction category handed out by the CategoryRegistry.
+ * There is exactly one instance per registered category, so categories
+ * are compared by identity.
+ */
+public final class Category {
+
+  private final String name;
+  private final int ordinal;
+
+  Category(String name, int ordinal) {
+    this.name = name;
+    this.ordinal = ordinal;
+  }
+
+  /**
+   * Returns the lower-case name the category was registered with.
+   */
+  public String getName() {
+    return name;
+  }
+
+  public int ordinal() {
+    return ordinal;
+  }
+
+  @Override
+  public String toString() {
+    return name;
+  }
+}
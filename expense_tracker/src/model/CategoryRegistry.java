@@ -0,0 +1,123 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The set of valid transaction categories. It defaults to the five built-in
+ * categories and can be replaced at startup with configure().
+ *
+ * lookup() is case-insensitive and does not allocate: it hashes the letters of
+ * the input directly into an open-addressing table of the interned categories.
+ */
+public final class CategoryRegistry {
+
+  public static final List<String> DEFAULT_CATEGORIES =
+      Collections.unmodifiableList(Arrays.asList("food", "travel", "bills", "entertainment", "other"));
+
+  // Category codes are stored in a single byte by the columnar storage engines.
+  public static final int MAX_CATEGORIES = 256;
+
+  private static volatile CategoryRegistry instance = new CategoryRegistry(DEFAULT_CATEGORIES);
+
+  private final List<Category> categories;
+  private final Category[] table;
+  private final int mask;
+
+  private CategoryRegistry(Collection<String> names) {
+    List<Category> registered = new ArrayList<>();
+    int capacity = Integer.highestOneBit(Math.max(names.size(), 1) * 4);
+    table = new Category[capacity];
+    mask = capacity - 1;
+    for (String name : names) {
+      if (hash(name) == -1) {
+        throw new IllegalArgumentException("A category must consist of letters only: " + name);
+      }
+      if (lookupIn(name) != null) {
+        continue;
+      }
+      if (registered.size() == MAX_CATEGORIES) {
+        throw new IllegalArgumentException("At most " + MAX_CATEGORIES + " categories can be registered.");
+      }
+      Category category = new Category(name.toLowerCase(Locale.ROOT), registered.size());
+      registered.add(category);
+      int slot = hash(name) & mask;
+      while (table[slot] != null) {
+        slot = (slot + 1) & mask;
+      }
+      table[slot] = category;
+    }
+    if (registered.isEmpty()) {
+      throw new IllegalArgumentException("At least one category must be registered.");
+    }
+    categories = Collections.unmodifiableList(registered);
+  }
+
+  public static CategoryRegistry getInstance() {
+    return instance;
+  }
+
+  /**
+   * Replaces the valid categories. Call this at startup, before any transaction
+   * is created, since existing transactions keep the handles of the old registry.
+   */
+  public static void configure(Collection<String> names) {
+    instance = new CategoryRegistry(names);
+  }
+
+  /**
+   * Returns the interned category matching the given name (ignoring case),
+   * or null if the name is not a registered category.
+   */
+  public Category lookup(String name) {
+    if (name == null) {
+      return null;
+    }
+    return lookupIn(name);
+  }
+
+  public Category get(int ordinal) {
+    return categories.get(ordinal);
+  }
+
+  public List<Category> getCategories() {
+    return categories;
+  }
+
+  private Category lookupIn(String name) {
+    int hash = hash(name);
+    if (hash == -1) {
+      return null;
+    }
+    for (int slot = hash & mask; table[slot] != null; slot = (slot + 1) & mask) {
+      Category candidate = table[slot];
+      if (candidate.getName().equalsIgnoreCase(name)) {
+        return candidate;
+      }
+    }
+    return null;
+  }
+
+  // A case-insensitive hash of an ASCII-letters-only name, or -1 for anything else.
+  private static int hash(String name) {
+    int length = name.length();
+    if (length == 0) {
+      return -1;
+    }
+    int hash = 0;
+    for (int i = 0; i < length; i++) {
+      char c = name.charAt(i);
+      char lower = (char) (c | 0x20);
+      if (lower < 'a' || lower > 'z') {
+        return -1;
+      }
+      hash = 31 * hash + lower;
+    }
+    // Spread the bits and keep the result non-negative.
+    return (hash ^ (hash >>> 16)) & 0x7fffffff;
+  }
+}
@@ -0,0 +1,134 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * An ExpenseTrackerModel that any number of threads (importers, an ingest endpoint,
+ * scheduled jobs) can add transactions to at the same time.
+ *
+ * The model itself keeps a single owner thread, e.g. the Swing EDT. Writers hand
+ * their transactions to submit(), which only appends to a lock-free queue picked by
+ * the writer thread, so writers rarely meet on the same queue. The first submit after
+ * a drain schedules drain() on the owner executor, which moves everything pending into
+ * the ledger as one batch, reported to the model listeners as a single appended range.
+ *
+ * Other threads read through getPublishedTransactions(): an immutable snapshot that
+ * is republished after every change, so it is always consistent with itself.
+ */
+public class ConcurrentExpenseTrackerModel extends ExpenseTrackerModel {
+
+  // Upper bound of one drain, so that a flood of submits does not hold up the owner thread.
+  private static final int MAX_DRAIN = 1 << 16;
+
+  private final List<Queue<Transaction>> stripes;
+  private final int stripeMask;
+  private final AtomicBoolean drainScheduled = new AtomicBoolean();
+  private final Executor owner;
+  private volatile List<Transaction> published;
+
+  /**
+   * @param owner runs the drains on the thread owning the model, e.g. SwingUtilities::invokeLater
+   */
+  public ConcurrentExpenseTrackerModel(Executor owner) {
+    this(new ListTransactionStore(), owner);
+  }
+
+  public ConcurrentExpenseTrackerModel(TransactionStore store, Executor owner) {
+    super(store);
+    this.owner = owner;
+    int stripeCount = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1) << 1;
+    stripes = new ArrayList<>(stripeCount);
+    for (int i = 0; i < stripeCount; i++) {
+      stripes.add(new ConcurrentLinkedQueue<>());
+    }
+    stripeMask = stripeCount - 1;
+    // Index a pre-filled store right away, so that reads never change the model.
+    getStats();
+    publish();
+  }
+
+  /**
+   * Queues a transaction to be added on the owner thread. Safe to call from any thread.
+   * Transactions submitted by one thread are added in the order they were submitted.
+   */
+  public void submit(Transaction t) {
+    if (t == null) {
+      throw new IllegalArgumentException("The new transaction must be non-null.");
+    }
+    stripes.get((int) Thread.currentThread().getId() & stripeMask).offer(t);
+    // Cheap read first, so that writers only race for the flag once per drain.
+    if (!drainScheduled.get() && drainScheduled.compareAndSet(false, true)) {
+      owner.execute(this::drain);
+    }
+  }
+
+  /**
+   * Moves the pending transactions into the ledger. Runs on the owner thread.
+   *
+   * @return the number of transactions added
+   */
+  public int drain() {
+    // Clear the flag before polling: a submit that still sees it set has already
+    // queued its transaction, which is picked up below.
+    drainScheduled.set(false);
+    List<Transaction> batch = new ArrayList<>();
+    for (Queue<Transaction> stripe : stripes) {
+      Transaction t;
+      while (batch.size() < MAX_DRAIN && (t = stripe.poll()) != null) {
+        batch.add(t);
+      }
+    }
+    if (batch.size() == MAX_DRAIN && drainScheduled.compareAndSet(false, true)) {
+      owner.execute(this::drain);
+    }
+    if (batch.isEmpty()) {
+      return 0;
+    }
+    addTransactions(batch);
+    return batch.size();
+  }
+
+  /**
+   * Returns the snapshot of the transactions published after the last change.
+   * Safe to call from any thread.
+   */
+  public List<Transaction> getPublishedTransactions() {
+    return published;
+  }
+
+  @Override
+  public void addTransaction(Transaction t) {
+    super.addTransaction(t);
+    publish();
+  }
+
+  @Override
+  public void addTransactions(Collection<Transaction> batch) {
+    super.addTransactions(batch);
+    publish();
+  }
+
+  @Override
+  public void insertAt(int[] positions, List<Transaction> rows) {
+    super.insertAt(positions, rows);
+    publish();
+  }
+
+  @Override
+  public int[] removeAt(int[] rows) {
+    int[] positions = super.removeAt(rows);
+    publish();
+    return positions;
+  }
+
+  private void publish() {
+    // The snapshot's final fields and this volatile write make its rows visible to any reader.
+    published = getTransactions();
+  }
+}
@@ -1,17 +1,96 @@
 package model;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import model.persistence.TransactionJournal;
 
 public class ExpenseTrackerModel {
 
   //encapsulation - data integrity
-  private List<Transaction> transactions;
+  private TransactionStore transactions;
   private int[] selectedRows;
 
+  // Secondary indexes from a key to the positions of the matching transactions,
+  // so that filters cost about as much as the number of matches.
+  private PostingsIndex<Category> categoryIndex;
+  private SortedLongIndex amountIndex;
+  private SortedLongIndex timestampIndex;
+  // Running aggregates, kept up to date alongside the indexes.
+  private LedgerStats stats;
+  // Whether the indexes and aggregates cover every row. A store handed over with
+  // rows in it (e.g. a mapped snapshot) is only indexed once they are first needed.
+  private boolean indexed;
+  // Write-ahead journal, or null when the model only lives in memory.
+  private TransactionJournal journal;
+  // Told about every change; copied on write so that listeners may unsubscribe while notified.
+  private final List<ExpenseTrackerModelListener> listeners = new CopyOnWriteArrayList<>();
+  private int batchDepth;
+
   public ExpenseTrackerModel() {
-    transactions = new ArrayList<>(); 
+    this(new ListTransactionStore());
+  }
+
+  /**
+   * Creates a model on top of the given storage engine,
+   * e.g. a ColumnarTransactionStore for very large ledgers.
+   * Rows already held by the store are indexed on the first filter or stats read.
+   */
+  public ExpenseTrackerModel(TransactionStore store) {
+    transactions = store;
+    categoryIndex = new PostingsIndex<>(new HashMap<>());
+    amountIndex = new SortedLongIndex();
+    timestampIndex = new SortedLongIndex();
+    stats = new LedgerStats(amountIndex);
+    indexed = store.size() == 0;
+  }
+
+  /**
+   * Attaches a write-ahead journal recording every following add and remove.
+   * Replay the journal into this model before attaching it.
+   */
+  public void setJournal(TransactionJournal journal) {
+    this.journal = journal;
+  }
+
+  public void addModelListener(ExpenseTrackerModelListener listener) {
+    listeners.add(listener);
+  }
+
+  public void removeModelListener(ExpenseTrackerModelListener listener) {
+    listeners.remove(listener);
+  }
+
+  /**
+   * Starts a batch of changes, reported to the listeners as such. Batches may nest;
+   * the listeners only see the outermost one.
+   */
+  public void beginBatch() {
+    if (batchDepth++ == 0) {
+      for (ExpenseTrackerModelListener listener : listeners) {
+        listener.batchStarted();
+      }
+    }
+  }
+
+  public void endBatch() {
+    if (batchDepth == 0) {
+      throw new IllegalStateException("No batch was started.");
+    }
+    if (--batchDepth == 0) {
+      for (ExpenseTrackerModelListener listener : listeners) {
+        listener.batchFinished();
+      }
+    }
+  }
+
+  public boolean isInBatch() {
+    return batchDepth > 0;
   }
 
   public void addTransaction(Transaction t) {
@@ -19,16 +98,306 @@ public class ExpenseTrackerModel {
     if (t == null) {
       throw new IllegalArgumentException("The new transaction must be non-null.");
     }
+    if (journal != null) {
+      journal.recordAdd(t);
+    }
     transactions.add(t);
+    int position = transactions.size() - 1;
+    if (indexed) {
+      index(position);
+    }
+    for (ExpenseTrackerModelListener listener : listeners) {
+      listener.transactionsAppended(position, position);
+    }
+  }
+
+  /**
+   * Adds a batch of transactions in one go, e.g. from a bulk import.
+   */
+  public void addTransactions(Collection<Transaction> batch) {
+    for (Transaction t : batch) {
+      if (t == null) {
+        throw new IllegalArgumentException("The new transaction must be non-null.");
+      }
+    }
+    if (journal != null) {
+      journal.recordAdd(batch);
+    }
+    int first = transactions.size();
+    transactions.add(batch);
+    if (indexed) {
+      for (int i = first; i < transactions.size(); i++) {
+        index(i);
+      }
+    }
+    if (transactions.size() > first) {
+      for (ExpenseTrackerModelListener listener : listeners) {
+        listener.transactionsAppended(first, transactions.size() - 1);
+      }
+    }
+  }
+
+  /**
+   * Inserts transactions at the given positions, e.g. to undo their removal.
+   * The positions are strictly ascending and are the ones the transactions have
+   * after the insertion; every later transaction moves down past them.
+   */
+  public void insertAt(int[] positions, List<Transaction> rows) {
+    if (positions.length != rows.size()) {
+      throw new IllegalArgumentException("Every inserted transaction needs a position.");
+    }
+    for (int i = 0; i < positions.length; i++) {
+      if (rows.get(i) == null) {
+        throw new IllegalArgumentException("The new transaction must be non-null.");
+      }
+      int lowest = i == 0 ? 0 : positions[i - 1] + 1;
+      if (positions[i] < lowest || positions[i] > transactions.size() + i) {
+        throw new IllegalArgumentException("The position is not valid.");
+      }
+    }
+    if (positions.length == 0) {
+      return;
+    }
+    if (journal != null) {
+      journal.recordInsert(positions, rows);
+    }
+    transactions.insertAll(positions, rows);
+    if (indexed) {
+      List<Category> categories = new ArrayList<>(rows.size());
+      long[] amounts = new long[rows.size()];
+      long[] timestamps = new long[rows.size()];
+      for (int i = 0; i < rows.size(); i++) {
+        Transaction t = rows.get(i);
+        categories.add(t.getCategoryHandle());
+        amounts[i] = SortedLongIndex.amountKey(t.getAmount());
+        timestamps[i] = t.getEpochMillis();
+        stats.record(t.getCategoryHandle(), t.getAmount());
+      }
+      categoryIndex.insertAll(positions, categories);
+      amountIndex.insertAll(positions, amounts);
+      timestampIndex.insertAll(positions, timestamps);
+    }
+    for (ExpenseTrackerModelListener listener : listeners) {
+      listener.transactionsInserted(positions.clone());
+    }
   }
 
   public void removeTransaction(Transaction t) {
-    transactions.remove(t);
+    int position = transactions.indexOf(t);
+    if (position == -1) {
+      return;
+    }
+    removeTransactionAt(position);
+  }
+
+  public void removeTransactionAt(int position) {
+    removeAt(new int[]{position});
+  }
+
+  /**
+   * Removes the transactions at the given positions in a single pass over the
+   * ledger and the indexes, instead of one O(n) removal per transaction.
+   *
+   * @return the removed positions, sorted and without duplicates
+   */
+  public int[] removeAt(int[] rows) {
+    int[] positions = sortedDistinct(rows);
+    for (int position : positions) {
+      if (position < 0 || position >= transactions.size()) {
+        throw new IllegalArgumentException("The position is not valid.");
+      }
+    }
+    if (positions.length == 0) {
+      return positions;
+    }
+    if (journal != null) {
+      journal.recordRemove(positions);
+    }
+    if (indexed) {
+      for (int position : positions) {
+        stats.forget(transactions.getCategoryHandle(position), transactions.getAmount(position));
+      }
+      categoryIndex.removeAll(positions);
+      amountIndex.removeAll(positions);
+      timestampIndex.removeAll(positions);
+    }
+    transactions.removeAll(positions);
+    for (ExpenseTrackerModelListener listener : listeners) {
+      listener.transactionsRemoved(positions.clone());
+    }
+    return positions;
   }
 
+  /**
+   * Returns a read-only snapshot of the transactions in O(1). Later adds and
+   * removes do not show through; the store copies its rows only when a removal
+   * would change rows an outstanding snapshot can see.
+   */
   public List<Transaction> getTransactions() {
     //encapsulation - data integrity
-    return Collections.unmodifiableList(new ArrayList<>(transactions));
+    return transactions.snapshot();
+  }
+
+  /**
+   * Returns the running aggregates (total, count, min, max, per-category sums).
+   * They are read in constant time instead of rescanning the ledger.
+   */
+  public LedgerStats getStats() {
+    ensureIndexed();
+    return stats;
+  }
+
+  /**
+   * Returns the number of transactions without copying them.
+   */
+  public int getTransactionCount() {
+    return transactions.size();
+  }
+
+  /**
+   * Returns the transaction at the given position without copying the ledger.
+   */
+  public Transaction getTransaction(int index) {
+    return transactions.get(index);
+  }
+
+  // Column reads of a single row, so that views painting a few rows of a large ledger
+  // do not need a Transaction object per cell.
+
+  public double getAmount(int index) {
+    return transactions.getAmount(index);
+  }
+
+  public String getCategory(int index) {
+    return transactions.getCategory(index);
+  }
+
+  public Category getCategoryHandle(int index) {
+    return transactions.getCategoryHandle(index);
+  }
+
+  public long getEpochMillis(int index) {
+    return transactions.getEpochMillis(index);
+  }
+
+  /**
+   * Adds up the transactions at the given positions, reading only their amount
+   * and category columns.
+   */
+  public LedgerSummary summarize(BitSet rows) {
+    LedgerSummary summary = new LedgerSummary();
+    for (int i = rows.nextSetBit(0); i >= 0; i = rows.nextSetBit(i + 1)) {
+      summary.add(transactions.getCategoryHandle(i), transactions.getAmount(i));
+    }
+    return summary;
+  }
+
+  /**
+   * Returns the transactions of the given category (ignoring case) in ledger order,
+   * looked up through the category index.
+   */
+  public List<Transaction> getTransactionsByCategory(String category) {
+    return getTransactionsByCategory(CategoryRegistry.getInstance().lookup(category));
+  }
+
+  /**
+   * Returns the transactions of the given category in ledger order.
+   */
+  public List<Transaction> getTransactionsByCategory(Category category) {
+    ensureIndexed();
+    return collect(categoryIndex.get(category));
+  }
+
+  /**
+   * Returns the transactions with exactly the given amount in ledger order,
+   * looked up through the amount index.
+   */
+  public List<Transaction> getTransactionsByAmount(double amount) {
+    BitSet rows = getRowsByAmount(amount);
+    List<Transaction> matches = new ArrayList<>(rows.cardinality());
+    for (int i = rows.nextSetBit(0); i >= 0; i = rows.nextSetBit(i + 1)) {
+      matches.add(transactions.get(i));
+    }
+    return matches;
+  }
+
+  /**
+   * Returns the positions of the transactions of the given category (ignoring case).
+   */
+  public BitSet getRowsByCategory(String category) {
+    return getRowsByCategory(CategoryRegistry.getInstance().lookup(category));
+  }
+
+  /**
+   * Returns the positions of the transactions of the given category.
+   */
+  public BitSet getRowsByCategory(Category category) {
+    ensureIndexed();
+    return toRows(categoryIndex.get(category));
+  }
+
+  /**
+   * Returns the positions of the transactions with exactly the given amount.
+   */
+  public BitSet getRowsByAmount(double amount) {
+    return getRowsByAmountRange(amount, amount);
+  }
+
+  /**
+   * Returns the positions of the transactions whose amount lies within min..max (inclusive),
+   * found with a search of the sorted amount index.
+   */
+  public BitSet getRowsByAmountRange(double min, double max) {
+    ensureIndexed();
+    BitSet rows = new BitSet(transactions.size());
+    amountIndex.collect(SortedLongIndex.amountKey(min), SortedLongIndex.amountKey(max), rows);
+    return rows;
+  }
+
+  /**
+   * Returns the positions of the transactions dated from fromMillis (inclusive)
+   * until toMillis (exclusive), found with a search of the sorted timestamp index.
+   */
+  public BitSet getRowsByTime(long fromMillis, long toMillis) {
+    ensureIndexed();
+    BitSet rows = new BitSet(transactions.size());
+    if (fromMillis < toMillis) {
+      timestampIndex.collect(fromMillis, toMillis - 1, rows);
+    }
+    return rows;
+  }
+
+  /**
+   * Returns the number of transactions whose amount lies within min..max (inclusive), in O(log n).
+   */
+  public int countByAmountRange(double min, double max) {
+    ensureIndexed();
+    return amountIndex.count(SortedLongIndex.amountKey(min), SortedLongIndex.amountKey(max));
+  }
+
+  /**
+   * Returns the number of transactions dated from fromMillis (inclusive) until toMillis (exclusive),
+   * in O(log n).
+   */
+  public int countByTime(long fromMillis, long toMillis) {
+    ensureIndexed();
+    return fromMillis >= toMillis ? 0 : timestampIndex.count(fromMillis, toMillis - 1);
+  }
+
+  /**
+   * Returns the number of transactions of the given category, read off the category index.
+   */
+  public int countByCategory(Category category) {
+    ensureIndexed();
+    IntList positions = categoryIndex.get(category);
+    return positions == null ? 0 : positions.size();
+  }
+
+  /**
+   * Returns the number of transactions with exactly the given amount, read off the amount index.
+   */
+  public int countByAmount(double amount) {
+    return countByAmountRange(amount, amount);
   }
 
   public  int[] getSelectedRows(){
@@ -37,4 +406,55 @@ public class ExpenseTrackerModel {
   public void  setSelectedRows(int[] rows){
     this.selectedRows = rows;
   }
+
+  private void ensureIndexed() {
+    if (!indexed) {
+      for (int i = 0; i < transactions.size(); i++) {
+        index(i);
+      }
+      indexed = true;
+    }
+  }
+
+  private void index(int position) {
+    Category category = transactions.getCategoryHandle(position);
+    double amount = transactions.getAmount(position);
+    categoryIndex.add(category, position);
+    amountIndex.add(SortedLongIndex.amountKey(amount), position);
+    timestampIndex.add(transactions.getEpochMillis(position), position);
+    stats.record(category, amount);
+  }
+
+  private List<Transaction> collect(IntList positions) {
+    if (positions == null) {
+      return new ArrayList<>();
+    }
+    List<Transaction> matches = new ArrayList<>(positions.size());
+    for (int i = 0; i < positions.size(); i++) {
+      matches.add(transactions.get(positions.get(i)));
+    }
+    return matches;
+  }
+
+  private BitSet toRows(IntList positions) {
+    BitSet rows = new BitSet(transactions.size());
+    if (positions != null) {
+      for (int i = 0; i < positions.size(); i++) {
+        rows.set(positions.get(i));
+      }
+    }
+    return rows;
+  }
+
+  private static int[] sortedDistinct(int[] rows) {
+    int[] sorted = rows.clone();
+    Arrays.sort(sorted);
+    int distinct = 0;
+    for (int i = 0; i < sorted.length; i++) {
+      if (i == 0 || sorted[i] != sorted[i - 1]) {
+        sorted[distinct++] = sorted[i];
+      }
+    }
+    return Arrays.copyOf(sorted, distinct);
+  }
 }
@@ -0,0 +1,38 @@
+package model;
+
+/**
+ * Receives the changes made to an ExpenseTrackerModel as deltas, right after
+ * each change, so that views and caches can follow without rereading the ledger.
+ * Positions are those of the ledger after the change for insertions, and
+ * before the change for removals.
+ */
+public interface ExpenseTrackerModelListener {
+
+  /**
+   * The transactions at positions first..last (inclusive) were appended.
+   */
+  default void transactionsAppended(int first, int last) {
+  }
+
+  /**
+   * Transactions were inserted at the given positions (ascending), moving the later ones down.
+   */
+  default void transactionsInserted(int[] positions) {
+  }
+
+  /**
+   * The transactions at the given positions (ascending) were removed.
+   */
+  default void transactionsRemoved(int[] positions) {
+  }
+
+  /**
+   * A batch of changes starts; the changes up to batchFinished() belong together,
+   * e.g. the chunks of a bulk import.
+   */
+  default void batchStarted() {
+  }
+
+  default void batchFinished() {
+  }
+}
@@ -1,8 +1,10 @@
 package model.Filter;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 
+import model.ExpenseTrackerModel;
 import model.Transaction;
 import controller.InputValidation;
 
@@ -22,12 +24,32 @@ public class AmountFilter implements TransactionFilter{
     public List<Transaction> filter(List<Transaction> transactions){
         List<Transaction> filteredTransactions = new ArrayList<>();
         for(Transaction transaction : transactions){
-            // Your solution could use a different comparison here.
-            if(transaction.getAmount() == amountFilter){
+            if(matches(transaction)){
                 filteredTransactions.add(transaction);
             }
         }
         return filteredTransactions;
     }
+
+    @Override
+    public boolean matches(Transaction transaction){
+        // Your solution could use a different comparison here.
+        return transaction.getAmount() == amountFilter;
+    }
+
+    @Override
+    public BitSet filterRows(ExpenseTrackerModel model){
+        return model.getRowsByAmount(amountFilter);
+    }
+
+    @Override
+    public boolean isIndexed(){
+        return true;
+    }
+
+    @Override
+    public int estimateMatches(ExpenseTrackerModel model){
+        return model.countByAmount(amountFilter);
+    }
     
 }
@@ -0,0 +1,57 @@
+package model.Filter;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import model.ExpenseTrackerModel;
+import model.Transaction;
+
+/**
+ * Matches the transactions whose amount lies between a minimum and a maximum, both inclusive.
+ * Against a model, the range is looked up in the sorted amount index in O(log n + k).
+ */
+public class AmountRangeFilter implements TransactionFilter {
+    private double minAmount;
+    private double maxAmount;
+
+    public AmountRangeFilter(double minAmount, double maxAmount) {
+        // Also rejects NaN bounds.
+        if (!(minAmount <= maxAmount)) {
+            throw new IllegalArgumentException("Invalid amount range filter");
+        }
+        this.minAmount = minAmount;
+        this.maxAmount = maxAmount;
+    }
+
+    @Override
+    public List<Transaction> filter(List<Transaction> transactions) {
+        List<Transaction> filteredTransactions = new ArrayList<>();
+        for (Transaction transaction : transactions) {
+            if (matches(transaction)) {
+                filteredTransactions.add(transaction);
+            }
+        }
+        return filteredTransactions;
+    }
+
+    @Override
+    public boolean matches(Transaction transaction) {
+        return transaction.getAmount() >= minAmount && transaction.getAmount() <= maxAmount;
+    }
+
+    @Override
+    public BitSet filterRows(ExpenseTrackerModel model) {
+        return model.getRowsByAmountRange(minAmount, maxAmount);
+    }
+
+    @Override
+    public boolean isIndexed() {
+        return true;
+    }
+
+    @Override
+    public int estimateMatches(ExpenseTrackerModel model) {
+        return model.countByAmountRange(minAmount, maxAmount);
+    }
+}
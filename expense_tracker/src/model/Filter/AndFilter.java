@@ -0,0 +1,73 @@
+package model.Filter;
+
+import java.util.BitSet;
+import java.util.List;
+
+import model.ExpenseTrackerModel;
+import model.Transaction;
+
+/**
+ * Matches the transactions matched by every one of the combined filters,
+ * e.g. new AndFilter(new CategoryFilter("food"), new AmountFilter(50)).
+ *
+ * The most selective filter is run first over its index, and the others only
+ * test the rows that are still in the running.
+ */
+public class AndFilter extends CompositeFilter {
+
+    public AndFilter(TransactionFilter... filters) {
+        super(filters);
+    }
+
+    @Override
+    public boolean matches(Transaction transaction) {
+        for (TransactionFilter filter : filters) {
+            if (!filter.matches(transaction)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public BitSet filterRows(ExpenseTrackerModel model) {
+        List<TransactionFilter> plan = FilterPlanner.mostSelectiveFirst(model, filters);
+        BitSet rows = plan.get(0).filterRows(model);
+        for (int i = 1; i < plan.size() && !rows.isEmpty(); i++) {
+            rows = plan.get(i).filterRows(model, rows);
+        }
+        return rows;
+    }
+
+    @Override
+    public BitSet filterRows(ExpenseTrackerModel model, BitSet candidates) {
+        BitSet rows = candidates;
+        for (TransactionFilter filter : FilterPlanner.mostSelectiveFirst(model, filters)) {
+            if (rows.isEmpty()) {
+                break;
+            }
+            rows = filter.filterRows(model, rows);
+        }
+        return rows;
+    }
+
+    @Override
+    public boolean isIndexed() {
+        for (TransactionFilter filter : filters) {
+            if (!filter.isIndexed()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int estimateMatches(ExpenseTrackerModel model) {
+        // No more than the most selective of the combined filters.
+        int estimate = Integer.MAX_VALUE;
+        for (TransactionFilter filter : filters) {
+            estimate = Math.min(estimate, filter.estimateMatches(model));
+        }
+        return estimate;
+    }
+}
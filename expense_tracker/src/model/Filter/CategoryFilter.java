@@ -1,21 +1,25 @@
 package model.Filter;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 
+import model.Category;
+import model.ExpenseTrackerModel;
 import model.Transaction;
 import controller.InputValidation;
 
 public class CategoryFilter implements TransactionFilter {
-    private String categoryFilter;
+    private Category categoryFilter;
 
     public CategoryFilter(String categoryFilter) {
         // Since the CategoryFilter constructor is public, 
         // the input validation needs to be performed again.
-        if(!InputValidation.isValidCategory(categoryFilter)){
+        Category category = InputValidation.lookupCategory(categoryFilter);
+        if(category == null){
             throw new IllegalArgumentException("Invalid category filter");
         }else{
-            this.categoryFilter = categoryFilter;
+            this.categoryFilter = category;
         }
     }
 
@@ -25,11 +29,32 @@ public class CategoryFilter implements TransactionFilter {
         List<Transaction> filteredTransactions = new ArrayList<>();
 
         for (Transaction transaction : transactions) {
-            if (transaction.getCategory().equalsIgnoreCase(categoryFilter)) {
+            if (matches(transaction)) {
                 filteredTransactions.add(transaction);
             }
         }
 
         return filteredTransactions;
     }
+
+    @Override
+    public boolean matches(Transaction transaction) {
+        // Categories are interned by the registry, so identity is equality.
+        return transaction.getCategoryHandle() == categoryFilter;
+    }
+
+    @Override
+    public BitSet filterRows(ExpenseTrackerModel model) {
+        return model.getRowsByCategory(categoryFilter);
+    }
+
+    @Override
+    public boolean isIndexed() {
+        return true;
+    }
+
+    @Override
+    public int estimateMatches(ExpenseTrackerModel model) {
+        return model.countByCategory(categoryFilter);
+    }
 }
@@ -0,0 +1,45 @@
+package model.Filter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import model.Transaction;
+
+/**
+ * Base class of the filters combining other filters.
+ */
+abstract class CompositeFilter implements TransactionFilter {
+    protected final List<TransactionFilter> filters;
+
+    CompositeFilter(TransactionFilter... filters) {
+        if (filters.length == 0) {
+            throw new IllegalArgumentException("At least one filter must be combined");
+        }
+        for (TransactionFilter filter : filters) {
+            if (filter == null) {
+                throw new IllegalArgumentException("The combined filters must be non-null");
+            }
+        }
+        this.filters = Collections.unmodifiableList(new ArrayList<>(Arrays.asList(filters)));
+    }
+
+    public List<TransactionFilter> getFilters() {
+        return filters;
+    }
+
+    @Override
+    public List<Transaction> filter(List<Transaction> transactions) {
+        List<Transaction> filteredTransactions = new ArrayList<>();
+        for (Transaction transaction : transactions) {
+            if (matches(transaction)) {
+                filteredTransactions.add(transaction);
+            }
+        }
+        return filteredTransactions;
+    }
+
+    @Override
+    public abstract boolean matches(Transaction transaction);
+}
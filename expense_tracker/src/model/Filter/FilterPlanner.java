@@ -0,0 +1,40 @@
+package model.Filter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import model.ExpenseTrackerModel;
+
+/**
+ * Orders the filters of a composite by their estimated number of matches.
+ * Indexed filters know their count up front, while scanning filters report the
+ * whole ledger, so the indexed ones naturally come first.
+ */
+final class FilterPlanner {
+
+    private FilterPlanner() {
+    }
+
+    // Returns the filters from the fewest to the most estimated matches.
+    static List<TransactionFilter> mostSelectiveFirst(ExpenseTrackerModel model, List<TransactionFilter> filters) {
+        // Each estimate is taken once, not on every comparison.
+        Map<TransactionFilter, Integer> estimates = new IdentityHashMap<>();
+        for (TransactionFilter filter : filters) {
+            estimates.put(filter, filter.estimateMatches(model));
+        }
+        List<TransactionFilter> plan = new ArrayList<>(filters);
+        plan.sort(Comparator.comparingInt(estimates::get));
+        return plan;
+    }
+
+    // Returns the filters from the most to the fewest estimated matches.
+    static List<TransactionFilter> leastSelectiveFirst(ExpenseTrackerModel model, List<TransactionFilter> filters) {
+        List<TransactionFilter> plan = mostSelectiveFirst(model, filters);
+        Collections.reverse(plan);
+        return plan;
+    }
+}
@@ -0,0 +1,49 @@
+package model.Filter;
+
+import java.util.BitSet;
+
+import model.ExpenseTrackerModel;
+import model.Transaction;
+
+/**
+ * Matches the transactions that the given filter does not match.
+ */
+public class NotFilter extends CompositeFilter {
+
+    public NotFilter(TransactionFilter filter) {
+        super(filter);
+    }
+
+    @Override
+    public boolean matches(Transaction transaction) {
+        return !filters.get(0).matches(transaction);
+    }
+
+    @Override
+    public BitSet filterRows(ExpenseTrackerModel model) {
+        BitSet rows = new BitSet(model.getTransactionCount());
+        rows.set(0, model.getTransactionCount());
+        rows.andNot(filters.get(0).filterRows(model));
+        return rows;
+    }
+
+    @Override
+    public BitSet filterRows(ExpenseTrackerModel model, BitSet candidates) {
+        BitSet rows = (BitSet) candidates.clone();
+        rows.andNot(filters.get(0).filterRows(model, candidates));
+        return rows;
+    }
+
+    @Override
+    public boolean isIndexed() {
+        return filters.get(0).isIndexed();
+    }
+
+    @Override
+    public int estimateMatches(ExpenseTrackerModel model) {
+        int count = model.getTransactionCount();
+        int negated = filters.get(0).estimateMatches(model);
+        // A filter reporting the whole ledger may simply not know, so assume the worst.
+        return negated >= count ? count : count - negated;
+    }
+}
@@ -0,0 +1,72 @@
+package model.Filter;
+
+import java.util.BitSet;
+
+import model.ExpenseTrackerModel;
+import model.Transaction;
+
+/**
+ * Matches the transactions matched by at least one of the combined filters.
+ *
+ * The filters matching the most rows run first, so the following ones only
+ * test the rows that are not matched yet.
+ */
+public class OrFilter extends CompositeFilter {
+
+    public OrFilter(TransactionFilter... filters) {
+        super(filters);
+    }
+
+    @Override
+    public boolean matches(Transaction transaction) {
+        for (TransactionFilter filter : filters) {
+            if (filter.matches(transaction)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public BitSet filterRows(ExpenseTrackerModel model) {
+        BitSet all = new BitSet(model.getTransactionCount());
+        all.set(0, model.getTransactionCount());
+        return filterRows(model, all);
+    }
+
+    @Override
+    public BitSet filterRows(ExpenseTrackerModel model, BitSet candidates) {
+        BitSet rows = new BitSet(model.getTransactionCount());
+        BitSet remaining = (BitSet) candidates.clone();
+        for (TransactionFilter filter : FilterPlanner.leastSelectiveFirst(model, filters)) {
+            if (remaining.isEmpty()) {
+                break;
+            }
+            BitSet matched = remaining.cardinality() == model.getTransactionCount()
+                ? filter.filterRows(model)
+                : filter.filterRows(model, remaining);
+            rows.or(matched);
+            remaining.andNot(matched);
+        }
+        return rows;
+    }
+
+    @Override
+    public boolean isIndexed() {
+        for (TransactionFilter filter : filters) {
+            if (!filter.isIndexed()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int estimateMatches(ExpenseTrackerModel model) {
+        long estimate = 0;
+        for (TransactionFilter filter : filters) {
+            estimate += filter.estimateMatches(model);
+        }
+        return (int) Math.min(estimate, model.getTransactionCount());
+    }
+}
@@ -0,0 +1,101 @@
+package model.Filter;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import model.Transaction;
+
+/**
+ * Runs the scan of a filter over a list of transactions, splitting it into chunks
+ * evaluated in parallel on the common ForkJoinPool once the list holds at least
+ * the threshold number of transactions. Smaller lists are scanned on the calling
+ * thread, where forking would cost more than it saves.
+ *
+ * The filter's matches() must then be safe to call from several threads, which
+ * holds for filters that do not change their own state.
+ */
+public final class ParallelFilterExecutor {
+
+    // Rows per task; a multiple of 64, so that every task fills whole words of the result.
+    private static final int CHUNK_SIZE = 1 << 14;
+
+    // -Dexpensetracker.parallelThreshold=<rows> changes the default.
+    private static volatile int threshold = Integer.getInteger("expensetracker.parallelThreshold", 100_000);
+
+    private ParallelFilterExecutor() {
+    }
+
+    public static int getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * Sets the number of transactions from which scans run in parallel.
+     */
+    public static void setThreshold(int threshold) {
+        if (threshold < 1) {
+            throw new IllegalArgumentException("The parallel threshold must be positive");
+        }
+        ParallelFilterExecutor.threshold = threshold;
+    }
+
+    /**
+     * Returns the positions of the transactions matched by the filter.
+     */
+    public static BitSet filterRows(TransactionFilter filter, List<Transaction> transactions) {
+        int size = transactions.size();
+        if (size < threshold || ForkJoinPool.getCommonPoolParallelism() < 2) {
+            BitSet rows = new BitSet(size);
+            for (int i = 0; i < size; i++) {
+                if (filter.matches(transactions.get(i))) {
+                    rows.set(i);
+                }
+            }
+            return rows;
+        }
+        // Each task writes only its own words, so the positions come out in order without merging.
+        long[] words = new long[(size + 63) >>> 6];
+        ForkJoinPool.commonPool().invoke(new ScanTask(filter, transactions, words, 0, size));
+        return BitSet.valueOf(words);
+    }
+
+    private static class ScanTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final TransactionFilter filter;
+        private final List<Transaction> transactions;
+        private final long[] words;
+        private final int from;
+        private final int to;
+
+        ScanTask(TransactionFilter filter, List<Transaction> transactions, long[] words, int from, int to) {
+            this.filter = filter;
+            this.transactions = transactions;
+            this.words = words;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= CHUNK_SIZE) {
+                for (int i = from; i < to; i++) {
+                    if (filter.matches(transactions.get(i))) {
+                        words[i >>> 6] |= 1L << i;
+                    }
+                }
+                return;
+            }
+            // Split on a chunk boundary, which keeps both halves word-aligned.
+            int middle = from + ((to - from) / 2 / CHUNK_SIZE) * CHUNK_SIZE;
+            if (middle == from) {
+                middle += CHUNK_SIZE;
+            }
+            invokeAll(new ScanTask(filter, transactions, words, from, middle),
+                      new ScanTask(filter, transactions, words, middle, to));
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package model.Filter;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import model.ExpenseTrackerModel;
+import model.Transaction;
+
+/**
+ * Matches the transactions dated within a time window, from its start (inclusive)
+ * until its end (exclusive), both in epoch milliseconds. The window is compared with
+ * the stored epoch millis and looked up in the sorted timestamp index in O(log n + k),
+ * without parsing any formatted timestamp.
+ */
+public class TimeRangeFilter implements TransactionFilter {
+    private long fromMillis;
+    private long toMillis;
+
+    public TimeRangeFilter(long fromMillis, long toMillis) {
+        if (fromMillis > toMillis) {
+            throw new IllegalArgumentException("Invalid time range filter");
+        }
+        this.fromMillis = fromMillis;
+        this.toMillis = toMillis;
+    }
+
+    /**
+     * Returns a filter matching the transactions of the last given number of days.
+     */
+    public static TimeRangeFilter lastDays(int days) {
+        if (days <= 0) {
+            throw new IllegalArgumentException("Invalid time range filter");
+        }
+        long now = System.currentTimeMillis();
+        return new TimeRangeFilter(now - TimeUnit.DAYS.toMillis(days), now + 1);
+    }
+
+    @Override
+    public List<Transaction> filter(List<Transaction> transactions) {
+        List<Transaction> filteredTransactions = new ArrayList<>();
+        for (Transaction transaction : transactions) {
+            if (matches(transaction)) {
+                filteredTransactions.add(transaction);
+            }
+        }
+        return filteredTransactions;
+    }
+
+    @Override
+    public boolean matches(Transaction transaction) {
+        return transaction.getEpochMillis() >= fromMillis && transaction.getEpochMillis() < toMillis;
+    }
+
+    @Override
+    public BitSet filterRows(ExpenseTrackerModel model) {
+        return model.getRowsByTime(fromMillis, toMillis);
+    }
+
+    @Override
+    public boolean isIndexed() {
+        return true;
+    }
+
+    @Override
+    public int estimateMatches(ExpenseTrackerModel model) {
+        return model.countByTime(fromMillis, toMillis);
+    }
+}
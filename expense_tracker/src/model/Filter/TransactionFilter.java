@@ -1,7 +1,11 @@
 package model.Filter;
 
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.List;
 
+import model.ExpenseTrackerModel;
 import model.Transaction;
 
 /**
@@ -13,4 +17,80 @@ public interface TransactionFilter {
 
   public List<Transaction> filter(List<Transaction> transactions);
 
+  /**
+   * Filters every transaction held by the model. The rows are found with
+   * filterRows(model), so indexed and composite filters do not scan the whole
+   * ledger, and only the matching transactions are fetched.
+   */
+  public default List<Transaction> filter(ExpenseTrackerModel model) {
+    BitSet rows = filterRows(model);
+    List<Transaction> filteredTransactions = new ArrayList<>(rows.cardinality());
+    for (int i = rows.nextSetBit(0); i >= 0; i = rows.nextSetBit(i + 1)) {
+      filteredTransactions.add(model.getTransaction(i));
+    }
+    return filteredTransactions;
+  }
+
+  /**
+   * Tests a single transaction against the filter.
+   */
+  public default boolean matches(Transaction transaction) {
+    return !filter(Collections.singletonList(transaction)).isEmpty();
+  }
+
+  /**
+   * Returns the positions of the matching transactions in the given list.
+   * Unlike looking up each filtered transaction, equal transactions keep their own row.
+   * Long lists are scanned in parallel, see ParallelFilterExecutor.
+   */
+  public default BitSet filterRows(List<Transaction> transactions) {
+    return ParallelFilterExecutor.filterRows(this, transactions);
+  }
+
+  /**
+   * Returns the positions of the matching transactions held by the model.
+   * Filters backed by one of the model's indexes override this as well.
+   */
+  public default BitSet filterRows(ExpenseTrackerModel model) {
+    return filterRows(model.getTransactions());
+  }
+
+  /**
+   * Returns the positions among the given candidate rows whose transactions match.
+   * Composite filters use this to test only the rows that are still in the running.
+   * An indexed filter intersects its own rows with the candidates when it matches no
+   * more of them than there are candidates, and otherwise probes each candidate.
+   */
+  public default BitSet filterRows(ExpenseTrackerModel model, BitSet candidates) {
+    if (isIndexed() && candidates.cardinality() >= estimateMatches(model)) {
+      BitSet rows = filterRows(model);
+      rows.and(candidates);
+      return rows;
+    }
+    BitSet rows = new BitSet(model.getTransactionCount());
+    for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+      if (matches(model.getTransaction(i))) {
+        rows.set(i);
+      }
+    }
+    return rows;
+  }
+
+  /**
+   * Whether filterRows(model) is answered from the model's indexes in about the
+   * time it takes to list the matches, rather than by scanning the ledger.
+   */
+  public default boolean isIndexed() {
+    return false;
+  }
+
+  /**
+   * Returns an estimate of how many transactions held by the model match.
+   * Indexed filters answer from their index; the others cannot tell without
+   * scanning, so they report the whole ledger.
+   */
+  public default int estimateMatches(ExpenseTrackerModel model) {
+    return model.getTransactionCount();
+  }
+
 }
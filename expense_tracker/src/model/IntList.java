@@ -0,0 +1,89 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * A growable list of primitive ints kept in ascending order.
+ * Used for the postings (ledger positions) of the secondary indexes.
+ */
+class IntList {
+
+  private int[] values;
+  private int size;
+
+  IntList() {
+    values = new int[4];
+  }
+
+  int size() {
+    return size;
+  }
+
+  int get(int index) {
+    return values[index];
+  }
+
+  // Appends a value that is larger than every value already stored.
+  void append(int value) {
+    if (size == values.length) {
+      values = Arrays.copyOf(values, size * 2);
+    }
+    values[size++] = value;
+  }
+
+  // Drops the values listed in removed (ascending) and moves every other value
+  // down by the number of removed values below it, in a single pass.
+  void removeAll(int[] removed) {
+    int kept = 0;
+    for (int i = 0; i < size; i++) {
+      int rank = Arrays.binarySearch(removed, values[i]);
+      if (rank < 0) {
+        values[kept++] = values[i] - (-rank - 1);
+      }
+    }
+    size = kept;
+  }
+
+  // Moves every value up past the values inserted at the given positions
+  // (ascending, as they are after the insertion), in a single pass.
+  void shiftForInserted(int[] inserted) {
+    for (int i = 0; i < size; i++) {
+      values[i] += insertedBefore(inserted, values[i]);
+    }
+  }
+
+  // Adds the values of the other list, none of which is stored yet, keeping the order.
+  void merge(IntList other) {
+    int total = size + other.size;
+    if (total > values.length) {
+      values = Arrays.copyOf(values, Math.max(total, values.length * 2));
+    }
+    // Merge from the end, so that no value is overwritten before it has moved.
+    int i = size - 1;
+    int j = other.size - 1;
+    for (int k = total - 1; j >= 0; k--) {
+      values[k] = i >= 0 && values[i] > other.values[j] ? values[i--] : other.values[j--];
+    }
+    size = total;
+  }
+
+  // The number of inserted positions in front of the value that was at the given position.
+  // An insertion at q with rank r has q - r old values before it, which never decreases with r.
+  static int insertedBefore(int[] inserted, int position) {
+    int low = 0;
+    int high = inserted.length;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (inserted[middle] - middle <= position) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  int[] toArray() {
+    return Arrays.copyOf(values, size);
+  }
+}
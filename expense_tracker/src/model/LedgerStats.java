@@ -0,0 +1,85 @@
+package model;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Read-only aggregates over the transactions of an ExpenseTrackerModel.
+ * The model keeps them up to date on every add and remove, so reading them
+ * does not rescan the ledger.
+ */
+public class LedgerStats {
+
+  private final SortedLongIndex amountIndex;
+  private final RunningTotal total;
+  private final Map<Category, RunningTotal> categoryTotals;
+
+  LedgerStats(SortedLongIndex amountIndex) {
+    this.amountIndex = amountIndex;
+    this.total = new RunningTotal();
+    this.categoryTotals = new HashMap<>();
+  }
+
+  public double getTotal() {
+    return total.getSum();
+  }
+
+  public int getCount() {
+    return total.getCount();
+  }
+
+  /**
+   * Returns the smallest amount, or 0 when the ledger is empty.
+   */
+  public double getMin() {
+    return amountIndex.size() == 0 ? 0 : SortedLongIndex.amountOf(amountIndex.firstKey());
+  }
+
+  /**
+   * Returns the largest amount, or 0 when the ledger is empty.
+   */
+  public double getMax() {
+    return amountIndex.size() == 0 ? 0 : SortedLongIndex.amountOf(amountIndex.lastKey());
+  }
+
+  /**
+   * Returns the sum of the amounts of the given category (ignoring case).
+   */
+  public double getCategoryTotal(String category) {
+    return getCategoryTotal(CategoryRegistry.getInstance().lookup(category));
+  }
+
+  /**
+   * Returns the sum of the amounts of the given category.
+   */
+  public double getCategoryTotal(Category category) {
+    RunningTotal categoryTotal = categoryTotals.get(category);
+    return categoryTotal == null ? 0 : categoryTotal.getSum();
+  }
+
+  /**
+   * Returns the sums of the amounts per lower-case category.
+   */
+  public Map<String, Double> getCategoryTotals() {
+    Map<String, Double> sums = new HashMap<>();
+    for (Map.Entry<Category, RunningTotal> entry : categoryTotals.entrySet()) {
+      sums.put(entry.getKey().getName(), entry.getValue().getSum());
+    }
+    return Collections.unmodifiableMap(sums);
+  }
+
+  void record(Category category, double amount) {
+    total.add(amount);
+    categoryTotals.computeIfAbsent(category, k -> new RunningTotal()).add(amount);
+  }
+
+  void forget(Category category, double amount) {
+    total.subtract(amount);
+    RunningTotal categoryTotal = categoryTotals.get(category);
+    categoryTotal.subtract(amount);
+    if (categoryTotal.getCount() == 0) {
+      categoryTotals.remove(category);
+    }
+  }
+}
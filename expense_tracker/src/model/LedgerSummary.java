@@ -0,0 +1,64 @@
+package model;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Aggregates over a selection of the transactions of an ExpenseTrackerModel,
+ * e.g. the rows matched by a filter. Unlike LedgerStats it is computed once,
+ * by ExpenseTrackerModel.summarize, and does not follow later changes.
+ */
+public class LedgerSummary {
+
+  private final RunningTotal total = new RunningTotal();
+  private final Map<Category, RunningTotal> categoryTotals = new HashMap<>();
+  private double min;
+  private double max;
+
+  public double getTotal() {
+    return total.getSum();
+  }
+
+  public int getCount() {
+    return total.getCount();
+  }
+
+  /**
+   * Returns the smallest amount, or 0 when nothing was selected.
+   */
+  public double getMin() {
+    return min;
+  }
+
+  /**
+   * Returns the largest amount, or 0 when nothing was selected.
+   */
+  public double getMax() {
+    return max;
+  }
+
+  /**
+   * Returns the sums of the amounts per lower-case category, in category name order.
+   */
+  public Map<String, Double> getCategoryTotals() {
+    Map<String, Double> sums = new TreeMap<>();
+    for (Map.Entry<Category, RunningTotal> entry : categoryTotals.entrySet()) {
+      sums.put(entry.getKey().getName(), entry.getValue().getSum());
+    }
+    return Collections.unmodifiableMap(sums);
+  }
+
+  void add(Category category, double amount) {
+    if (total.getCount() == 0) {
+      min = amount;
+      max = amount;
+    } else {
+      min = Math.min(min, amount);
+      max = Math.max(max, amount);
+    }
+    total.add(amount);
+    categoryTotals.computeIfAbsent(category, k -> new RunningTotal()).add(amount);
+  }
+}
@@ -0,0 +1,165 @@
+package model;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * The default storage engine, keeping the Transaction objects in an array.
+ *
+ * Snapshots share the array. Appends only write past the end of every snapshot,
+ * so the array is copied only when a removal would shift rows a snapshot can see.
+ */
+public class ListTransactionStore implements TransactionStore {
+
+  private Transaction[] transactions = new Transaction[16];
+  private int size;
+  // Whether a snapshot may still be reading the array.
+  private boolean shared;
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public Transaction get(int index) {
+    checkIndex(index);
+    return transactions[index];
+  }
+
+  @Override
+  public double getAmount(int index) {
+    return get(index).getAmount();
+  }
+
+  @Override
+  public String getCategory(int index) {
+    return get(index).getCategory();
+  }
+
+  @Override
+  public Category getCategoryHandle(int index) {
+    return get(index).getCategoryHandle();
+  }
+
+  @Override
+  public long getEpochMillis(int index) {
+    return get(index).getEpochMillis();
+  }
+
+  @Override
+  public void add(Transaction t) {
+    ensureCapacity(size + 1);
+    transactions[size++] = t;
+  }
+
+  @Override
+  public void add(Collection<Transaction> batch) {
+    ensureCapacity(size + batch.size());
+    for (Transaction t : batch) {
+      transactions[size++] = t;
+    }
+  }
+
+  @Override
+  public void insertAll(int[] positions, List<Transaction> rows) {
+    int newSize = size + positions.length;
+    // Move the rows up in place, unless a snapshot still reads the array or it is full.
+    Transaction[] target = transactions;
+    if (shared || newSize > transactions.length) {
+      target = new Transaction[newSize > transactions.length
+          ? Math.max(newSize, transactions.length * 2) : transactions.length];
+    }
+    // Fill from the end, so that no row is overwritten before it has moved.
+    int from = size - 1;
+    int r = positions.length - 1;
+    for (int k = newSize - 1; k >= 0 && (r >= 0 || target != transactions); k--) {
+      target[k] = r >= 0 && positions[r] == k ? rows.get(r--) : transactions[from--];
+    }
+    transactions = target;
+    size = newSize;
+    shared = false;
+  }
+
+  @Override
+  public void removeAll(int[] positions) {
+    if (positions.length == 0) {
+      return;
+    }
+    checkIndex(positions[0]);
+    checkIndex(positions[positions.length - 1]);
+    // Compact the kept transactions, into a fresh array if a snapshot still reads this one.
+    Transaction[] target = shared ? new Transaction[transactions.length] : transactions;
+    int kept = 0;
+    int next = 0;
+    for (int i = 0; i < size; i++) {
+      if (next < positions.length && positions[next] == i) {
+        next++;
+      } else {
+        target[kept++] = transactions[i];
+      }
+    }
+    Arrays.fill(target, kept, size, null);
+    transactions = target;
+    size = kept;
+    shared = false;
+  }
+
+  @Override
+  public int indexOf(Transaction t) {
+    for (int i = 0; i < size; i++) {
+      if (Objects.equals(t, transactions[i])) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  @Override
+  public List<Transaction> snapshot() {
+    shared = true;
+    return new Snapshot(transactions, size);
+  }
+
+  private void ensureCapacity(int capacity) {
+    if (capacity > transactions.length) {
+      // The snapshots keep the old array, so the new one is not shared.
+      transactions = Arrays.copyOf(transactions, Math.max(capacity, transactions.length * 2));
+      shared = false;
+    }
+  }
+
+  private void checkIndex(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+  }
+
+  private static class Snapshot extends AbstractList<Transaction> implements RandomAccess {
+
+    private final Transaction[] transactions;
+    private final int size;
+
+    Snapshot(Transaction[] transactions, int size) {
+      this.transactions = transactions;
+      this.size = size;
+    }
+
+    @Override
+    public Transaction get(int index) {
+      if (index < 0 || index >= size) {
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+      }
+      return transactions[index];
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+  }
+}
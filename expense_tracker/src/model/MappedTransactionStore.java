@@ -0,0 +1,258 @@
+package model;
+
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A storage engine reading its rows from the columns of a memory-mapped snapshot.
+ * Snapshot rows are only read when they are asked for, so opening a ledger costs
+ * the same whatever its size; the OS pages in what is actually viewed.
+ *
+ * Rows added afterwards go to an in-memory columnar tail. The first removal of a
+ * snapshot row copies the snapshot into memory, which is no more than the O(n)
+ * shift a removal costs anyway.
+ */
+public class MappedTransactionStore implements TransactionStore {
+
+  private DoubleBuffer amounts;
+  private LongBuffer timestamps;
+  private ByteBuffer categories;
+  private List<String> categoryNames;
+  private Category[] categoryHandles;
+  private IntBuffer spelledRows;
+  private IntBuffer spelledCodes;
+  private List<String> spellings;
+  private int baseSize;
+  private ColumnarTransactionStore tail;
+
+  /**
+   * @param amounts the amount of each snapshot row
+   * @param timestamps the epoch millis of each snapshot row
+   * @param categories the code of each snapshot row's category in categoryNames
+   * @param categoryNames the registered name of each category code
+   * @param spelledRows the rows spelled differently from their category's name, in ascending order
+   * @param spelledCodes the code of each of those rows' spelling in spellings
+   * @param spellings the spellings other than the registered names
+   * @throws IllegalArgumentException if a category name is not registered
+   */
+  public MappedTransactionStore(DoubleBuffer amounts, LongBuffer timestamps, ByteBuffer categories,
+                                List<String> categoryNames, IntBuffer spelledRows, IntBuffer spelledCodes,
+                                List<String> spellings) {
+    if (amounts.limit() != timestamps.limit() || amounts.limit() != categories.limit()) {
+      throw new IllegalArgumentException("The snapshot columns must have the same length.");
+    }
+    if (spelledRows.limit() != spelledCodes.limit()) {
+      throw new IllegalArgumentException("Every spelled row must have a spelling.");
+    }
+    this.amounts = amounts;
+    this.timestamps = timestamps;
+    this.categories = categories;
+    this.categoryNames = categoryNames;
+    this.categoryHandles = new Category[categoryNames.size()];
+    for (int i = 0; i < categoryHandles.length; i++) {
+      categoryHandles[i] = CategoryRegistry.getInstance().lookup(categoryNames.get(i));
+      if (categoryHandles[i] == null) {
+        throw new IllegalArgumentException("The category is not valid: " + categoryNames.get(i));
+      }
+    }
+    this.spelledRows = spelledRows;
+    this.spelledCodes = spelledCodes;
+    this.spellings = spellings;
+    this.baseSize = amounts.limit();
+    this.tail = new ColumnarTransactionStore();
+  }
+
+  @Override
+  public int size() {
+    return baseSize + tail.size();
+  }
+
+  @Override
+  public Transaction get(int index) {
+    if (index >= baseSize) {
+      return tail.get(index - baseSize);
+    }
+    return Transaction.restore(getAmount(index), getCategory(index), getCategoryHandle(index), getEpochMillis(index));
+  }
+
+  @Override
+  public double getAmount(int index) {
+    return index < baseSize ? amounts.get(checkIndex(index)) : tail.getAmount(index - baseSize);
+  }
+
+  @Override
+  public String getCategory(int index) {
+    return index < baseSize
+        ? spelling(spelledRows, spelledCodes, spellings,
+            index, categoryNames.get(categories.get(checkIndex(index)) & 0xFF))
+        : tail.getCategory(index - baseSize);
+  }
+
+  @Override
+  public Category getCategoryHandle(int index) {
+    return index < baseSize
+        ? categoryHandles[categories.get(checkIndex(index)) & 0xFF]
+        : tail.getCategoryHandle(index - baseSize);
+  }
+
+  @Override
+  public long getEpochMillis(int index) {
+    return index < baseSize ? timestamps.get(checkIndex(index)) : tail.getEpochMillis(index - baseSize);
+  }
+
+  @Override
+  public void add(Transaction t) {
+    tail.add(t);
+  }
+
+  @Override
+  public void add(Collection<Transaction> batch) {
+    tail.add(batch);
+  }
+
+  @Override
+  public void insertAll(int[] positions, List<Transaction> rows) {
+    if (positions.length == 0) {
+      return;
+    }
+    if (positions[0] < baseSize) {
+      materialize();
+    }
+    int[] tailPositions = new int[positions.length];
+    for (int i = 0; i < positions.length; i++) {
+      tailPositions[i] = positions[i] - baseSize;
+    }
+    tail.insertAll(tailPositions, rows);
+  }
+
+  @Override
+  public void removeAll(int[] positions) {
+    if (positions.length == 0) {
+      return;
+    }
+    if (positions[0] < baseSize) {
+      materialize();
+    }
+    int[] tailPositions = new int[positions.length];
+    for (int i = 0; i < positions.length; i++) {
+      tailPositions[i] = positions[i] - baseSize;
+    }
+    tail.removeAll(tailPositions);
+  }
+
+  @Override
+  public int indexOf(Transaction t) {
+    for (int i = 0; i < baseSize; i++) {
+      if (amounts.get(i) == t.getAmount() && timestamps.get(i) == t.getEpochMillis()
+          && getCategory(i).equals(t.getCategory())) {
+        return i;
+      }
+    }
+    int index = tail.indexOf(t);
+    return index == -1 ? -1 : baseSize + index;
+  }
+
+  @Override
+  public List<Transaction> snapshot() {
+    if (baseSize == 0) {
+      return tail.snapshot();
+    }
+    return new Snapshot(this, baseSize, tail.snapshot());
+  }
+
+  // Copies the snapshot rows in front of the tail and lets go of the mapping.
+  private void materialize() {
+    ColumnarTransactionStore all = new ColumnarTransactionStore();
+    for (int i = 0; i < size(); i++) {
+      all.append(getAmount(i), getCategory(i), getCategoryHandle(i), getEpochMillis(i));
+    }
+    tail = all;
+    baseSize = 0;
+    amounts = null;
+    timestamps = null;
+    categories = null;
+    categoryNames = null;
+    categoryHandles = null;
+    spelledRows = null;
+    spelledCodes = null;
+    spellings = null;
+  }
+
+  // The spelling of a snapshot row, found by binary search among the few rows that have one.
+  private static String spelling(IntBuffer spelledRows, IntBuffer spelledCodes, List<String> spellings,
+                                 int index, String name) {
+    int low = 0;
+    int high = spelledRows.limit() - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int row = spelledRows.get(mid);
+      if (row < index) {
+        low = mid + 1;
+      } else if (row > index) {
+        high = mid - 1;
+      } else {
+        return spellings.get(spelledCodes.get(mid));
+      }
+    }
+    return name;
+  }
+
+  private int checkIndex(int index) {
+    if (index < 0) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+    }
+    return index;
+  }
+
+  // The mapped rows never change, so a view only needs the tail's own snapshot.
+  private static class Snapshot extends AbstractList<Transaction> implements RandomAccess {
+
+    private final DoubleBuffer amounts;
+    private final LongBuffer timestamps;
+    private final ByteBuffer categories;
+    private final List<String> categoryNames;
+    private final Category[] categoryHandles;
+    private final IntBuffer spelledRows;
+    private final IntBuffer spelledCodes;
+    private final List<String> spellings;
+    private final int baseSize;
+    private final List<Transaction> tail;
+
+    Snapshot(MappedTransactionStore store, int baseSize, List<Transaction> tail) {
+      this.amounts = store.amounts;
+      this.timestamps = store.timestamps;
+      this.categories = store.categories;
+      this.categoryNames = store.categoryNames;
+      this.categoryHandles = store.categoryHandles;
+      this.spelledRows = store.spelledRows;
+      this.spelledCodes = store.spelledCodes;
+      this.spellings = store.spellings;
+      this.baseSize = baseSize;
+      this.tail = tail;
+    }
+
+    @Override
+    public Transaction get(int index) {
+      if (index >= baseSize) {
+        return tail.get(index - baseSize);
+      }
+      if (index < 0) {
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+      }
+      int code = categories.get(index) & 0xFF;
+      String category = spelling(spelledRows, spelledCodes, spellings, index, categoryNames.get(code));
+      return Transaction.restore(amounts.get(index), category, categoryHandles[code], timestamps.get(index));
+    }
+
+    @Override
+    public int size() {
+      return baseSize + tail.size();
+    }
+  }
+}
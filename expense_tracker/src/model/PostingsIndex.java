@@ -0,0 +1,57 @@
+package model;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A secondary index mapping a key to the ledger positions holding it.
+ * The ordering of the keys is decided by the backing map, so a TreeMap
+ * gives a sorted index and a HashMap gives a plain lookup index.
+ */
+class PostingsIndex<K> {
+
+  private final Map<K, IntList> postings;
+
+  PostingsIndex(Map<K, IntList> postings) {
+    this.postings = postings;
+  }
+
+  IntList get(K key) {
+    return postings.get(key);
+  }
+
+  // Records a transaction appended at the end of the ledger.
+  void add(K key, int position) {
+    postings.computeIfAbsent(key, k -> new IntList()).append(position);
+  }
+
+  // Records transactions inserted at the given positions (ascending, as they are after
+  // the insertion) and moves every other position down past them.
+  void insertAll(int[] positions, List<K> keys) {
+    for (IntList list : postings.values()) {
+      list.shiftForInserted(positions);
+    }
+    Map<K, IntList> inserted = new HashMap<>();
+    for (int i = 0; i < positions.length; i++) {
+      inserted.computeIfAbsent(keys.get(i), k -> new IntList()).append(positions[i]);
+    }
+    for (Map.Entry<K, IntList> entry : inserted.entrySet()) {
+      postings.computeIfAbsent(entry.getKey(), k -> new IntList()).merge(entry.getValue());
+    }
+  }
+
+  // Forgets the transactions at the given positions (ascending) and moves
+  // every later position up past the removed ones.
+  void removeAll(int[] positions) {
+    Iterator<IntList> lists = postings.values().iterator();
+    while (lists.hasNext()) {
+      IntList list = lists.next();
+      list.removeAll(positions);
+      if (list.size() == 0) {
+        lists.remove();
+      }
+    }
+  }
+}
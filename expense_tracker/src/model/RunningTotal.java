@@ -0,0 +1,41 @@
+package model;
+
+/**
+ * A running sum and count of amounts. The sum is compensated (Neumaier),
+ * so that adding and removing many amounts does not drift away from the
+ * total a full rescan would give.
+ */
+class RunningTotal {
+
+  private double sum;
+  private double compensation;
+  private int count;
+
+  void add(double amount) {
+    accumulate(amount);
+    count++;
+  }
+
+  void subtract(double amount) {
+    accumulate(-amount);
+    count--;
+  }
+
+  double getSum() {
+    return sum + compensation;
+  }
+
+  int getCount() {
+    return count;
+  }
+
+  private void accumulate(double value) {
+    double next = sum + value;
+    if (Math.abs(sum) >= Math.abs(value)) {
+      compensation += (sum - next) + value;
+    } else {
+      compensation += (value - next) + sum;
+    }
+    sum = next;
+  }
+}
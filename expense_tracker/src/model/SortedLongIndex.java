@@ -0,0 +1,248 @@
+package model;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * A sorted index from a primitive long key to the ledger positions holding it.
+ * The entries are kept as parallel primitive arrays sorted by key, so an entry
+ * costs 12 bytes instead of a map entry, a boxed key and a posting list per key,
+ * and the rows or the number of rows within a key range are found with two
+ * binary searches.
+ *
+ * Additions go to a tail that is sorted when the index is read and merged into
+ * the sorted run once it grows past an eighth of it, so that appending a
+ * transaction costs amortized O(1) however the keys are spread.
+ */
+class SortedLongIndex {
+
+  private static final int MIN_TAIL = 4096;
+
+  // The sorted run.
+  private long[] keys = new long[0];
+  private int[] positions = new int[0];
+  private int size;
+  // The recent additions, sorted by key up to tailSorted.
+  private long[] tailKeys = new long[16];
+  private int[] tailPositions = new int[16];
+  private int tailSize;
+  private int tailSorted;
+
+  // Maps an amount to a key with the same order (as Double.compare), so that
+  // amounts are indexed like any other long.
+  static long amountKey(double amount) {
+    long bits = Double.doubleToLongBits(amount);
+    return bits < 0 ? bits ^ Long.MAX_VALUE : bits;
+  }
+
+  static double amountOf(long key) {
+    return Double.longBitsToDouble(key < 0 ? key ^ Long.MAX_VALUE : key);
+  }
+
+  int size() {
+    return size + tailSize;
+  }
+
+  // Records a transaction appended at the given position.
+  void add(long key, int position) {
+    if (tailSize == tailKeys.length) {
+      tailKeys = Arrays.copyOf(tailKeys, tailSize * 2);
+      tailPositions = Arrays.copyOf(tailPositions, tailSize * 2);
+    }
+    tailKeys[tailSize] = key;
+    tailPositions[tailSize] = position;
+    tailSize++;
+    if (tailSize > Math.max(MIN_TAIL, size >>> 3)) {
+      mergeTail();
+    }
+  }
+
+  // Records transactions inserted at the given positions (ascending, as they are after
+  // the insertion) and moves every other position down past them.
+  void insertAll(int[] inserted, long[] insertedKeys) {
+    for (int i = 0; i < size; i++) {
+      positions[i] += IntList.insertedBefore(inserted, positions[i]);
+    }
+    for (int i = 0; i < tailSize; i++) {
+      tailPositions[i] += IntList.insertedBefore(inserted, tailPositions[i]);
+    }
+    for (int i = 0; i < inserted.length; i++) {
+      add(insertedKeys[i], inserted[i]);
+    }
+  }
+
+  // Forgets the transactions at the given positions (ascending) and moves
+  // every later position up past the removed ones. The key order is kept.
+  void removeAll(int[] removed) {
+    size = compact(keys, positions, 0, size, 0, removed);
+    int sorted = compact(tailKeys, tailPositions, 0, tailSorted, 0, removed);
+    tailSize = compact(tailKeys, tailPositions, tailSorted, tailSize, sorted, removed);
+    tailSorted = sorted;
+  }
+
+  // The smallest key; only valid when the index is not empty.
+  long firstKey() {
+    sortTail();
+    if (tailSize == 0) {
+      return keys[0];
+    }
+    return size == 0 ? tailKeys[0] : Math.min(keys[0], tailKeys[0]);
+  }
+
+  // The largest key; only valid when the index is not empty.
+  long lastKey() {
+    sortTail();
+    if (tailSize == 0) {
+      return keys[size - 1];
+    }
+    return size == 0 ? tailKeys[tailSize - 1] : Math.max(keys[size - 1], tailKeys[tailSize - 1]);
+  }
+
+  // The number of entries with keys from..to, both inclusive.
+  int count(long from, long to) {
+    if (from > to) {
+      return 0;
+    }
+    sortTail();
+    return upperBound(keys, size, to) - lowerBound(keys, size, from)
+        + upperBound(tailKeys, tailSize, to) - lowerBound(tailKeys, tailSize, from);
+  }
+
+  // Sets the positions of the entries with keys from..to, both inclusive.
+  void collect(long from, long to, BitSet rows) {
+    if (from > to) {
+      return;
+    }
+    sortTail();
+    for (int i = lowerBound(keys, size, from), end = upperBound(keys, size, to); i < end; i++) {
+      rows.set(positions[i]);
+    }
+    for (int i = lowerBound(tailKeys, tailSize, from), end = upperBound(tailKeys, tailSize, to);
+         i < end; i++) {
+      rows.set(tailPositions[i]);
+    }
+  }
+
+  // Sorts the additions made since the last read and merges them into the sorted part of the tail.
+  private void sortTail() {
+    if (tailSorted == tailSize) {
+      return;
+    }
+    int added = tailSize - tailSorted;
+    long[] addedKeys = Arrays.copyOfRange(tailKeys, tailSorted, tailSize);
+    int[] addedPositions = Arrays.copyOfRange(tailPositions, tailSorted, tailSize);
+    sort(addedKeys, addedPositions, added);
+    mergeInto(tailKeys, tailPositions, tailSorted, addedKeys, addedPositions, added);
+    tailSorted = tailSize;
+  }
+
+  private void mergeTail() {
+    sortTail();
+    if (size + tailSize > keys.length) {
+      int capacity = Math.max(size + tailSize, keys.length + (keys.length >> 1));
+      keys = Arrays.copyOf(keys, capacity);
+      positions = Arrays.copyOf(positions, capacity);
+    }
+    mergeInto(keys, positions, size, tailKeys, tailPositions, tailSize);
+    size += tailSize;
+    tailSize = 0;
+    tailSorted = 0;
+  }
+
+  // Merges the sorted entries of the second arrays into the sorted first count entries of the
+  // first arrays, which have room for both. Merges from the end, so nothing is overwritten
+  // before it has moved.
+  private static void mergeInto(long[] keys, int[] positions, int count,
+                                long[] otherKeys, int[] otherPositions, int otherCount) {
+    int i = count - 1;
+    int j = otherCount - 1;
+    for (int k = count + otherCount - 1; j >= 0; k--) {
+      if (i >= 0 && keys[i] > otherKeys[j]) {
+        keys[k] = keys[i];
+        positions[k] = positions[i--];
+      } else {
+        keys[k] = otherKeys[j];
+        positions[k] = otherPositions[j--];
+      }
+    }
+  }
+
+  // Sorts the first count entries by key, keeping the order of equal keys (a bottom-up merge sort).
+  private static void sort(long[] keys, int[] positions, int count) {
+    long[] fromKeys = keys;
+    int[] fromPositions = positions;
+    long[] toKeys = new long[count];
+    int[] toPositions = new int[count];
+    for (int width = 1; width < count; width *= 2) {
+      for (int low = 0; low < count; low += 2 * width) {
+        int middle = Math.min(low + width, count);
+        int high = Math.min(low + 2 * width, count);
+        int i = low;
+        int j = middle;
+        for (int k = low; k < high; k++) {
+          if (i < middle && (j >= high || fromKeys[i] <= fromKeys[j])) {
+            toKeys[k] = fromKeys[i];
+            toPositions[k] = fromPositions[i++];
+          } else {
+            toKeys[k] = fromKeys[j];
+            toPositions[k] = fromPositions[j++];
+          }
+        }
+      }
+      long[] swapKeys = fromKeys;
+      fromKeys = toKeys;
+      toKeys = swapKeys;
+      int[] swapPositions = fromPositions;
+      fromPositions = toPositions;
+      toPositions = swapPositions;
+    }
+    if (fromKeys != keys) {
+      System.arraycopy(fromKeys, 0, keys, 0, count);
+      System.arraycopy(fromPositions, 0, positions, 0, count);
+    }
+  }
+
+  // Drops the entries from..to at removed positions, moving the kept ones down to dest
+  // and their positions up past the removed ones. Returns the end of the kept entries.
+  private static int compact(long[] keys, int[] positions, int from, int to, int dest,
+                             int[] removed) {
+    for (int i = from; i < to; i++) {
+      int rank = Arrays.binarySearch(removed, positions[i]);
+      if (rank < 0) {
+        keys[dest] = keys[i];
+        positions[dest++] = positions[i] - (-rank - 1);
+      }
+    }
+    return dest;
+  }
+
+  // The first of the count entries whose key is at least key.
+  private static int lowerBound(long[] keys, int count, long key) {
+    int low = 0;
+    int high = count;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (keys[middle] < key) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  // The first of the count entries whose key is larger than key.
+  private static int upperBound(long[] keys, int count, long key) {
+    int low = 0;
+    int high = count;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (keys[middle] <= key) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+}
@@ -0,0 +1,43 @@
+package model;
+
+import java.time.Instant;
+import java.time.ZoneId;
+
+/**
+ * Formats epoch timestamps for display. The formatter is immutable, so this is
+ * safe off the EDT, and the text of recently seen minutes is cached because a
+ * table full of transactions mostly shows the same few minutes.
+ */
+final class TimestampFormat {
+
+  private static final int CACHE_SIZE = 256;
+
+  // Entries are immutable, so racing threads can only see a complete entry or a stale one.
+  private static final Entry[] cache = new Entry[CACHE_SIZE];
+
+  private TimestampFormat() {
+  }
+
+  static String format(long epochMillis) {
+    long minute = Math.floorDiv(epochMillis, 60_000L);
+    int slot = (int) (minute & (CACHE_SIZE - 1));
+    Entry entry = cache[slot];
+    if (entry == null || entry.minute != minute) {
+      String text = Transaction.dateTimeFormatter.withZone(ZoneId.systemDefault())
+          .format(Instant.ofEpochMilli(epochMillis));
+      entry = new Entry(minute, text);
+      cache[slot] = entry;
+    }
+    return entry.text;
+  }
+
+  private static final class Entry {
+    private final long minute;
+    private final String text;
+
+    private Entry(long minute, String text) {
+      this.minute = minute;
+      this.text = text;
+    }
+  }
+}
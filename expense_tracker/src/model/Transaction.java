@@ -3,31 +3,60 @@ package model;
 import controller.InputValidation;
 
 import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.List;
+import java.time.format.DateTimeFormatter;
 
 public class Transaction {
 
+  // Kept for the callers parsing timestamps with it. SimpleDateFormat is not thread-safe,
+  // so new code uses dateTimeFormatter, which formats and parses the same pattern.
   public static final SimpleDateFormat dateFormatter = new SimpleDateFormat("dd-MM-yyyy HH:mm");
+
+  // DateTimeFormatter is immutable, so unlike SimpleDateFormat it can be shared between threads.
+  public static final DateTimeFormatter dateTimeFormatter = DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm");
     
   //final means that the variable cannot be changed
   private final double amount;
   private final String category;
-  private final String timestamp;
+  // The interned category, compared by identity when filtering.
+  private final Category categoryHandle;
+  // The timestamp is kept as epoch milliseconds and only formatted when displayed.
+  private final long epochMillis;
 
   public Transaction(double amount, String category) {
+    this(amount, category, System.currentTimeMillis());
+  }
+
+  /**
+   * Creates a transaction that happened at the given time, e.g. when it is read back from disk.
+   */
+  public Transaction(double amount, String category, long epochMillis) {
+    this(amount, category, validate(amount, category), epochMillis);
+  }
+
+  private Transaction(double amount, String category, Category categoryHandle, long epochMillis) {
+    this.amount = amount;
+    this.category = category;
+    this.categoryHandle = categoryHandle;
+    this.epochMillis = epochMillis;
+  }
+
+  // Recreates a transaction that was already validated, e.g. when a storage
+  // engine that does not keep the objects reads a row back.
+  static Transaction restore(double amount, String category, Category categoryHandle, long epochMillis) {
+    return new Transaction(amount, category, categoryHandle, epochMillis);
+  }
+
+  private static Category validate(double amount, String category) {
     // Since this is a public constructor, perform input validation
     // to guarantee that the amount and category are both valid
     if (InputValidation.isValidAmount(amount) == false) {
 	throw new IllegalArgumentException("The amount is not valid.");
     }
-    if (InputValidation.isValidCategory(category) == false) {
+    Category categoryHandle = InputValidation.lookupCategory(category);
+    if (categoryHandle == null) {
 	throw new IllegalArgumentException("The category is not valid.");
     }
-      
-    this.amount = amount;
-    this.category = category;
-    this.timestamp = generateTimestamp();
+    return categoryHandle;
   }
 
   public double getAmount() {
@@ -43,16 +72,28 @@ public class Transaction {
     return category;
   }
 
+  public Category getCategoryHandle() {
+    return categoryHandle;
+  }
+
   // public void setCategory(String category) {
   //   this.category = category; 
   // }
   
   public String getTimestamp() {
-    return timestamp;
+    return formatTimestamp(epochMillis);
+  }
+
+  /**
+   * Formats epoch millis the way getTimestamp() does, for callers reading
+   * the timestamp column without a Transaction object.
+   */
+  public static String formatTimestamp(long epochMillis) {
+    return TimestampFormat.format(epochMillis);
   }
-  //private helper method to generate timestamp
-  private String generateTimestamp() {
-     return dateFormatter.format(new Date());
+
+  public long getEpochMillis() {
+    return epochMillis;
   }
 
 }
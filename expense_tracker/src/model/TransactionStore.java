@@ -0,0 +1,54 @@
+package model;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The storage engine holding the rows of an ExpenseTrackerModel.
+ * The model keeps its indexes and aggregates on top of it.
+ */
+public interface TransactionStore {
+
+  public int size();
+
+  public Transaction get(int index);
+
+  // Column reads, so that scans do not need a Transaction object per row.
+
+  public double getAmount(int index);
+
+  public String getCategory(int index);
+
+  public Category getCategoryHandle(int index);
+
+  public long getEpochMillis(int index);
+
+  public void add(Transaction t);
+
+  public void add(Collection<Transaction> batch);
+
+  /**
+   * Inserts the rows at the given positions, which are ascending, distinct and
+   * the positions the rows have after the insertion.
+   */
+  public void insertAll(int[] positions, List<Transaction> rows);
+
+  /**
+   * Removes the rows at the given positions, which are ascending and distinct, in one pass.
+   */
+  public void removeAll(int[] positions);
+
+  /**
+   * Returns the position of the given transaction, or -1 if it is not stored.
+   * Stores that do not keep the Transaction objects match on their values.
+   */
+  public int indexOf(Transaction t);
+
+  /**
+   * Returns a read-only view of the rows as they are now, which later changes do
+   * not show through. It costs O(1); stores copy their data only if it is changed
+   * in a way the view would see.
+   */
+  public List<Transaction> snapshot();
+
+}
@@ -0,0 +1,293 @@
+package model.persistence;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import model.Category;
+import model.ExpenseTrackerModel;
+import model.MappedTransactionStore;
+import model.Transaction;
+
+/**
+ * A binary snapshot of every transaction of an ExpenseTrackerModel, together with
+ * the journal length at the time it was taken, so that only the journal tail has
+ * to be replayed on startup.
+ *
+ * Layout: a fixed header, then one fixed-width column per field (amounts as
+ * doubles, timestamps as epoch millis, categories as one-byte codes), then the
+ * rows whose category is spelled differently from its registered name with the
+ * code of their spelling, and finally the category dictionary and the spellings.
+ * Opening a snapshot memory-maps the file instead of reading it.
+ */
+public class LedgerSnapshot {
+
+  private static final int MAGIC = 0x45545331; // "ETS1"
+  private static final int VERSION = 2;
+  // magic, version, row count, category count, journal position, dictionary offset,
+  // count of the rows with their own spelling, spelling count
+  private static final int HEADER_SIZE = 4 + 4 + 4 + 4 + 8 + 8 + 4 + 4;
+  private static final int BUFFER_SIZE = 64 * 1024;
+  // Each column is mapped on its own, and a mapping holds at most Integer.MAX_VALUE bytes.
+  private static final int MAX_ROWS = Integer.MAX_VALUE / 8;
+
+  private final MappedTransactionStore store;
+  private final long journalPosition;
+
+  private LedgerSnapshot(MappedTransactionStore store, long journalPosition) {
+    this.store = store;
+    this.journalPosition = journalPosition;
+  }
+
+  /**
+   * Returns a storage engine reading the snapshot rows on demand,
+   * to be passed to the ExpenseTrackerModel constructor.
+   */
+  public MappedTransactionStore getStore() {
+    return store;
+  }
+
+  /**
+   * Returns the journal length when the snapshot was taken,
+   * i.e. where replaying the journal tail starts.
+   */
+  public long getJournalPosition() {
+    return journalPosition;
+  }
+
+  /**
+   * Writes a snapshot of the model. The file is written next to the target and
+   * then moved over it, so a crash never leaves a half-written snapshot behind.
+   */
+  public static void write(ExpenseTrackerModel model, long journalPosition, Path path) throws IOException {
+    int rowCount = model.getTransactionCount();
+    if (rowCount > MAX_ROWS) {
+      throw new IllegalStateException("Too many transactions for a snapshot.");
+    }
+    long amountsOffset = HEADER_SIZE;
+    long timestampsOffset = amountsOffset + 8L * rowCount;
+    long categoriesOffset = timestampsOffset + 8L * rowCount;
+    long spelledRowsOffset = categoriesOffset + rowCount;
+
+    // The codes stand for the categories, so there are no more of them than registered
+    // categories; the spellings of the rows not spelled as registered are kept apart.
+    List<String> categoryNames = new ArrayList<>();
+    Map<Category, Integer> categoryCodes = new HashMap<>();
+    List<String> spellings = new ArrayList<>();
+    Map<String, Integer> spellingCodes = new HashMap<>();
+    int[] spelledRows = new int[16];
+    int[] spelledCodes = new int[16];
+    int spelledCount = 0;
+    Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+    try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      ColumnWriter amounts = new ColumnWriter(channel, amountsOffset);
+      ColumnWriter timestamps = new ColumnWriter(channel, timestampsOffset);
+      ColumnWriter categories = new ColumnWriter(channel, categoriesOffset);
+      for (int i = 0; i < rowCount; i++) {
+        Transaction t = model.getTransaction(i);
+        Category category = t.getCategoryHandle();
+        Integer code = categoryCodes.get(category);
+        if (code == null) {
+          // Only reached when the categories were configured again with rows already added.
+          if (categoryNames.size() == 256) {
+            throw new IllegalStateException("Too many distinct categories for a snapshot.");
+          }
+          code = categoryNames.size();
+          categoryNames.add(category.getName());
+          categoryCodes.put(category, code);
+        }
+        if (!t.getCategory().equals(category.getName())) {
+          Integer spellingCode = spellingCodes.get(t.getCategory());
+          if (spellingCode == null) {
+            spellingCode = spellings.size();
+            spellings.add(t.getCategory());
+            spellingCodes.put(t.getCategory(), spellingCode);
+          }
+          if (spelledCount == spelledRows.length) {
+            spelledRows = Arrays.copyOf(spelledRows, spelledCount * 2);
+            spelledCodes = Arrays.copyOf(spelledCodes, spelledCount * 2);
+          }
+          spelledRows[spelledCount] = i;
+          spelledCodes[spelledCount] = spellingCode;
+          spelledCount++;
+        }
+        amounts.room(8).putDouble(t.getAmount());
+        timestamps.room(8).putLong(t.getEpochMillis());
+        categories.room(1).put((byte) (int) code);
+      }
+      amounts.flush();
+      timestamps.flush();
+      categories.flush();
+
+      ColumnWriter spelled = new ColumnWriter(channel, spelledRowsOffset);
+      for (int i = 0; i < spelledCount; i++) {
+        spelled.room(4).putInt(spelledRows[i]);
+      }
+      for (int i = 0; i < spelledCount; i++) {
+        spelled.room(4).putInt(spelledCodes[i]);
+      }
+      spelled.flush();
+
+      long dictionaryOffset = spelledRowsOffset + 8L * spelledCount;
+      ColumnWriter dictionary = new ColumnWriter(channel, dictionaryOffset);
+      writeNames(dictionary, categoryNames);
+      writeNames(dictionary, spellings);
+      dictionary.flush();
+
+      ColumnWriter header = new ColumnWriter(channel, 0);
+      header.room(HEADER_SIZE)
+          .putInt(MAGIC)
+          .putInt(VERSION)
+          .putInt(rowCount)
+          .putInt(categoryNames.size())
+          .putLong(journalPosition)
+          .putLong(dictionaryOffset)
+          .putInt(spelledCount)
+          .putInt(spellings.size());
+      header.flush();
+      channel.force(true);
+    }
+    Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Memory-maps a snapshot written by write(). Only the header and the category
+   * dictionary are read here; the rows are read as they are viewed. Each column is
+   * mapped on its own, so a snapshot may be larger than a single mapping.
+   */
+  public static LedgerSnapshot open(Path path) throws IOException {
+    List<String> categoryNames;
+    List<String> spellings;
+    long journalPosition;
+    MappedByteBuffer amounts;
+    MappedByteBuffer timestamps;
+    MappedByteBuffer categories;
+    MappedByteBuffer spelledRows;
+    MappedByteBuffer spelledCodes;
+    // The mappings stay valid after the channel is closed.
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size < HEADER_SIZE) {
+        throw new IOException("Not an expense tracker snapshot: " + path);
+      }
+      MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+      if (header.getInt(0) != MAGIC) {
+        throw new IOException("Not an expense tracker snapshot: " + path);
+      }
+      if (header.getInt(4) != VERSION) {
+        throw new IOException("Unsupported snapshot version " + header.getInt(4));
+      }
+      int rowCount = header.getInt(8);
+      int categoryCount = header.getInt(12);
+      journalPosition = header.getLong(16);
+      long dictionaryOffset = header.getLong(24);
+      int spelledCount = header.getInt(32);
+      int spellingCount = header.getInt(36);
+      if (rowCount > MAX_ROWS) {
+        throw new IOException("The snapshot has too many transactions to be opened: " + path);
+      }
+      long amountsOffset = HEADER_SIZE;
+      long timestampsOffset = amountsOffset + 8L * rowCount;
+      long categoriesOffset = timestampsOffset + 8L * rowCount;
+      long spelledRowsOffset = categoriesOffset + rowCount;
+      if (rowCount < 0 || categoryCount < 0 || spelledCount < 0 || spelledCount > rowCount || spellingCount < 0
+          || dictionaryOffset != spelledRowsOffset + 8L * spelledCount || dictionaryOffset > size
+          || size - dictionaryOffset > Integer.MAX_VALUE) {
+        throw new IOException("The snapshot is corrupt: " + path);
+      }
+
+      amounts = channel.map(FileChannel.MapMode.READ_ONLY, amountsOffset, 8L * rowCount);
+      timestamps = channel.map(FileChannel.MapMode.READ_ONLY, timestampsOffset, 8L * rowCount);
+      categories = channel.map(FileChannel.MapMode.READ_ONLY, categoriesOffset, rowCount);
+      spelledRows = channel.map(FileChannel.MapMode.READ_ONLY, spelledRowsOffset, 4L * spelledCount);
+      spelledCodes = channel.map(FileChannel.MapMode.READ_ONLY, spelledRowsOffset + 4L * spelledCount,
+          4L * spelledCount);
+      ByteBuffer dictionary = channel.map(FileChannel.MapMode.READ_ONLY, dictionaryOffset,
+          size - dictionaryOffset);
+      try {
+        categoryNames = readNames(dictionary, categoryCount);
+        spellings = readNames(dictionary, spellingCount);
+      } catch (BufferUnderflowException | NegativeArraySizeException e) {
+        throw new IOException("The snapshot is corrupt: " + path, e);
+      }
+    }
+
+    MappedTransactionStore store;
+    try {
+      store = new MappedTransactionStore(
+          amounts.asDoubleBuffer(),
+          timestamps.asLongBuffer(),
+          categories,
+          categoryNames,
+          spelledRows.asIntBuffer(),
+          spelledCodes.asIntBuffer(),
+          spellings);
+    } catch (IllegalArgumentException e) {
+      // e.g. the snapshot was written with categories that are no longer configured
+      throw new IOException("The snapshot does not match the configured categories: " + path, e);
+    }
+    return new LedgerSnapshot(store, journalPosition);
+  }
+
+  private static void writeNames(ColumnWriter writer, List<String> names) throws IOException {
+    for (String name : names) {
+      byte[] bytes = name.getBytes(StandardCharsets.US_ASCII);
+      writer.room(2 + bytes.length).putShort((short) bytes.length).put(bytes);
+    }
+  }
+
+  private static List<String> readNames(ByteBuffer buffer, int count) {
+    List<String> names = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      byte[] bytes = new byte[buffer.getShort()];
+      buffer.get(bytes);
+      names.add(new String(bytes, StandardCharsets.US_ASCII));
+    }
+    return names;
+  }
+
+  /**
+   * Buffers the writes of one column and flushes them at the column's file position.
+   */
+  private static class ColumnWriter {
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private long position;
+
+    ColumnWriter(FileChannel channel, long position) {
+      this.channel = channel;
+      this.position = position;
+      this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    }
+
+    // Returns the buffer with at least the given number of bytes free.
+    ByteBuffer room(int bytes) throws IOException {
+      if (buffer.remaining() < bytes) {
+        flush();
+      }
+      return buffer;
+    }
+
+    void flush() throws IOException {
+      buffer.flip();
+      while (buffer.hasRemaining()) {
+        position += channel.write(buffer, position);
+      }
+      buffer.clear();
+    }
+  }
+}
@@ -0,0 +1,382 @@
+package model.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import model.ExpenseTrackerModel;
+import model.Transaction;
+
+/**
+ * An append-only write-ahead journal of the changes made to an ExpenseTrackerModel.
+ * Replaying it on startup rebuilds the model after a crash.
+ *
+ * Each record is [int length][byte type][payload][int crc32] where the payload is
+ * the amount, epoch millis and category of an added transaction, the position
+ * of a removed one, or both for a transaction inserted back at its position.
+ * Records are batched in a buffer and written through a FileChannel; the
+ * FsyncPolicy decides when they are forced to the disk.
+ */
+public class TransactionJournal implements Closeable {
+
+  public enum FsyncPolicy {
+    /** The records of an operation are written and forced before it returns. */
+    PER_OPERATION,
+    /** Records are written and forced together every group commit interval. */
+    GROUP_COMMIT,
+    /** Records are written every group commit interval and the OS decides when they reach the disk. */
+    OS_MANAGED
+  }
+
+  private static final byte ADD = 1;
+  private static final byte REMOVE = 2;
+  private static final byte REMOVE_BATCH = 3;
+  private static final byte INSERT = 4;
+  // Positions per REMOVE_BATCH record, so that a record always fits in the buffer.
+  private static final int MAX_BATCH_POSITIONS = 200;
+
+  // The length prefix and the crc suffix around the type and payload.
+  private static final int RECORD_OVERHEAD = 4 + 4;
+  private static final int MAX_RECORD_SIZE = 1024;
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final FileChannel channel;
+  private final FsyncPolicy policy;
+  private final ByteBuffer buffer;
+  private final CRC32 crc;
+  private final ScheduledExecutorService committer;
+  private IOException failure;
+
+  private TransactionJournal(FileChannel channel, FsyncPolicy policy, long groupCommitMillis) {
+    this.channel = channel;
+    this.policy = policy;
+    this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    this.crc = new CRC32();
+    if (policy == FsyncPolicy.PER_OPERATION) {
+      committer = null;
+    } else {
+      committer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "journal-group-commit");
+        thread.setDaemon(true);
+        return thread;
+      });
+      committer.scheduleWithFixedDelay(this::commitQuietly, groupCommitMillis, groupCommitMillis,
+          TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Opens (or creates) the journal at the given path. New records are appended after
+   * the existing ones; replay them before attaching the journal to a model.
+   */
+  public static TransactionJournal open(Path path, FsyncPolicy policy, long groupCommitMillis)
+      throws IOException {
+    if (policy != FsyncPolicy.PER_OPERATION && groupCommitMillis <= 0) {
+      throw new IllegalArgumentException("The group commit interval must be positive.");
+    }
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE);
+    channel.position(channel.size());
+    return new TransactionJournal(channel, policy, groupCommitMillis);
+  }
+
+  /**
+   * Applies every record of the journal to the given model, which must not have this
+   * journal attached yet. A torn or corrupt tail left by a crash is cut off.
+   * A record the model rejects, e.g. of a category that is no longer configured, stops
+   * the replay with an IOException; the journal is left as it is.
+   *
+   * @return the number of records applied
+   */
+  public int replay(ExpenseTrackerModel model) throws IOException {
+    return replay(model, 0);
+  }
+
+  /**
+   * Applies the records written after the given journal length, e.g. the
+   * tail recorded after the snapshot the model was loaded from.
+   *
+   * @return the number of records applied
+   */
+  public synchronized int replay(ExpenseTrackerModel model, long fromPosition) throws IOException {
+    if (fromPosition > channel.size()) {
+      throw new IOException("The journal is shorter than the snapshot it belongs to.");
+    }
+    ByteBuffer in = ByteBuffer.allocate(BUFFER_SIZE);
+    long position = fromPosition;
+    long validEnd = fromPosition;
+    int applied = 0;
+    // Positional reads leave the channel where the next record is appended.
+    while (true) {
+      in.clear();
+      int read = channel.read(in, position);
+      if (read <= 0) {
+        break;
+      }
+      in.flip();
+      while (in.remaining() >= 4) {
+        int start = in.position();
+        int length = in.getInt(start);
+        if (length < 1 || length > MAX_RECORD_SIZE) {
+          return truncate(validEnd, applied);
+        }
+        if (in.remaining() < RECORD_OVERHEAD + length) {
+          break;
+        }
+        crc.reset();
+        crc.update(in.duplicate().position(start + 4).limit(start + 4 + length));
+        if ((int) crc.getValue() != in.getInt(start + 4 + length)) {
+          return truncate(validEnd, applied);
+        }
+        in.position(start + 4);
+        try {
+          apply(model, in);
+        } catch (IllegalArgumentException e) {
+          throw new IOException("Journal record " + (applied + 1) + " cannot be replayed: "
+              + e.getMessage(), e);
+        }
+        in.position(start + 4 + length + 4);
+        validEnd = position + in.position();
+        applied++;
+      }
+      if (in.position() == 0) {
+        // Not even one more complete record: the tail was torn by a crash.
+        break;
+      }
+      position += in.position();
+    }
+    return truncate(validEnd, applied);
+  }
+
+  public synchronized void recordAdd(Transaction t) {
+    putAdd(t);
+    commit();
+  }
+
+  /**
+   * Records a batch of added transactions, forced to the disk together.
+   */
+  public synchronized void recordAdd(Collection<Transaction> batch) {
+    for (Transaction t : batch) {
+      putAdd(t);
+    }
+    commit();
+  }
+
+  /**
+   * Records transactions inserted at the given positions (ascending, after the insertion).
+   * Inserting them one by one in that order gives the same ledger, so each gets its own record.
+   */
+  public void recordInsert(int[] positions, List<Transaction> rows) {
+    synchronized (this) {
+      for (int i = 0; i < positions.length; i++) {
+        Transaction t = rows.get(i);
+        byte[] category = t.getCategory().getBytes(StandardCharsets.US_ASCII);
+        int start = begin(1 + 4 + 8 + 8 + 2 + category.length);
+        buffer.put(INSERT)
+            .putInt(positions[i])
+            .putDouble(t.getAmount())
+            .putLong(t.getEpochMillis())
+            .putShort((short) category.length)
+            .put(category);
+        end(start);
+      }
+      commit();
+    }
+  }
+
+  public void recordRemove(int position) {
+    synchronized (this) {
+      int start = begin(1 + 4);
+      buffer.put(REMOVE).putInt(position);
+      end(start);
+      commit();
+    }
+  }
+
+  /**
+   * Records the removal of the given positions (ascending) as one batch. Large batches
+   * are split from the top down, so every record stays valid for the ones before it.
+   */
+  public void recordRemove(int[] positions) {
+    if (positions.length == 1) {
+      recordRemove(positions[0]);
+      return;
+    }
+    synchronized (this) {
+      for (int to = positions.length; to > 0; to -= MAX_BATCH_POSITIONS) {
+        int from = Math.max(0, to - MAX_BATCH_POSITIONS);
+        int start = begin(1 + 4 + 4 * (to - from));
+        buffer.put(REMOVE_BATCH).putInt(to - from);
+        for (int i = from; i < to; i++) {
+          buffer.putInt(positions[i]);
+        }
+        end(start);
+      }
+      commit();
+    }
+  }
+
+  /**
+   * Writes every buffered record and forces it to the disk.
+   */
+  public synchronized void flush() throws IOException {
+    checkFailure();
+    write();
+    channel.force(false);
+  }
+
+  /**
+   * Forces every buffered record to the disk and returns the journal length,
+   * to be stored with a snapshot taken right now.
+   */
+  public synchronized long checkpoint() throws IOException {
+    flush();
+    return channel.size();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (committer != null) {
+      committer.shutdown();
+    }
+    synchronized (this) {
+      try {
+        flush();
+      } finally {
+        channel.close();
+      }
+    }
+  }
+
+  private void apply(ExpenseTrackerModel model, ByteBuffer in) {
+    byte type = in.get();
+    if (type == ADD) {
+      double amount = in.getDouble();
+      long epochMillis = in.getLong();
+      byte[] category = new byte[in.getShort()];
+      in.get(category);
+      model.addTransaction(new Transaction(amount, new String(category, StandardCharsets.US_ASCII),
+          epochMillis));
+    } else if (type == INSERT) {
+      int position = in.getInt();
+      double amount = in.getDouble();
+      long epochMillis = in.getLong();
+      byte[] category = new byte[in.getShort()];
+      in.get(category);
+      model.insertAt(new int[]{position}, Collections.singletonList(
+          new Transaction(amount, new String(category, StandardCharsets.US_ASCII), epochMillis)));
+    } else if (type == REMOVE) {
+      model.removeTransactionAt(in.getInt());
+    } else if (type == REMOVE_BATCH) {
+      int[] positions = new int[in.getInt()];
+      for (int i = 0; i < positions.length; i++) {
+        positions[i] = in.getInt();
+      }
+      model.removeAt(positions);
+    } else {
+      throw new IllegalStateException("Unknown journal record type " + type);
+    }
+  }
+
+  private int truncate(long validEnd, int applied) throws IOException {
+    if (channel.size() > validEnd) {
+      channel.truncate(validEnd);
+    }
+    channel.position(validEnd);
+    return applied;
+  }
+
+  // Reserves room for a record of the given length (type and payload) and returns where it starts.
+  private int begin(int length) {
+    checkFailureUnchecked();
+    if (buffer.remaining() < RECORD_OVERHEAD + length) {
+      try {
+        write();
+      } catch (IOException e) {
+        failure = e;
+        throw new UncheckedIOException(e);
+      }
+    }
+    int start = buffer.position();
+    buffer.putInt(length);
+    return start;
+  }
+
+  private void putAdd(Transaction t) {
+    byte[] category = t.getCategory().getBytes(StandardCharsets.US_ASCII);
+    int start = begin(1 + 8 + 8 + 2 + category.length);
+    buffer.put(ADD)
+        .putDouble(t.getAmount())
+        .putLong(t.getEpochMillis())
+        .putShort((short) category.length)
+        .put(category);
+    end(start);
+  }
+
+  private void end(int start) {
+    int payloadStart = start + 4;
+    crc.reset();
+    crc.update(buffer.duplicate().position(payloadStart).limit(buffer.position()));
+    buffer.putInt((int) crc.getValue());
+  }
+
+  // Called once an operation has buffered all of its records, so it is forced in one go.
+  private void commit() {
+    if (policy == FsyncPolicy.PER_OPERATION) {
+      try {
+        flush();
+      } catch (IOException e) {
+        failure = e;
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+
+  private void write() throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  private synchronized void commitQuietly() {
+    if (failure != null || !channel.isOpen()) {
+      return;
+    }
+    try {
+      write();
+      if (policy == FsyncPolicy.GROUP_COMMIT) {
+        channel.force(false);
+      }
+    } catch (IOException e) {
+      // Reported to the next writer, which can surface it to the user.
+      failure = e;
+    }
+  }
+
+  private void checkFailure() throws IOException {
+    if (failure != null) {
+      throw new IOException("The journal could not be written.", failure);
+    }
+  }
+
+  private void checkFailureUnchecked() {
+    if (failure != null) {
+      throw new UncheckedIOException(new IOException("The journal could not be written.", failure));
+    }
+  }
+}
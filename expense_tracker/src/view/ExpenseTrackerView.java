@@ -3,16 +3,18 @@ package view;
 import javax.swing.*;
 import javax.swing.event.ListSelectionEvent;
 import javax.swing.event.ListSelectionListener;
-import javax.swing.table.DefaultTableCellRenderer;
-import javax.swing.table.DefaultTableModel;
 
 import java.awt.*;
 import java.awt.event.ActionListener;
+import java.awt.event.InputEvent;
+import java.awt.event.KeyEvent;
 import java.text.NumberFormat;
 
-import model.Transaction;
+import java.nio.file.Path;
+import java.util.BitSet;
 
-import java.util.List;
+import metrics.ExpenseTrackerMetrics;
+import metrics.Operation;
 
 public class ExpenseTrackerView extends JFrame {
 
@@ -20,7 +22,8 @@ public class ExpenseTrackerView extends JFrame {
   private JButton addTransactionBtn;
   private JFormattedTextField amountField;
   private JTextField categoryField;
-  private DefaultTableModel model;
+  private TransactionTableModel model;
+  private HighlightRenderer highlightRenderer;
 
   // private JTextField dateFilterField;
   private JTextField categoryFilterField;
@@ -31,6 +34,13 @@ public class ExpenseTrackerView extends JFrame {
 
   private JButton undoBtn;
 
+  private JButton importBtn;
+
+  private JMenuItem undoChangeItem;
+  private JMenuItem redoChangeItem;
+
+  private final ExpenseTrackerMetrics metrics = ExpenseTrackerMetrics.getInstance();
+
 
 
   
@@ -39,12 +49,13 @@ public class ExpenseTrackerView extends JFrame {
     setTitle("Expense Tracker"); // Set title
     setSize(600, 400); // Make GUI larger
 
-    String[] columnNames = {"serial", "Amount", "Category", "Date"};
-    this.model = new DefaultTableModel(columnNames, 0);
+    this.model = new TransactionTableModel();
 
     
     // Create table
     transactionsTable = new JTable(model);
+    highlightRenderer = new HighlightRenderer();
+    transactionsTable.setDefaultRenderer(Object.class, highlightRenderer);
 
     addTransactionBtn = new JButton("Add Transaction");
 
@@ -68,6 +79,7 @@ public class ExpenseTrackerView extends JFrame {
     amountFilterField = new JTextField(10);
     amountFilterBtn = new JButton("Filter by Amount");
     undoBtn = new JButton("Undo");
+    importBtn = new JButton("Import CSV");
 
   
     // Layout components
@@ -82,8 +94,22 @@ public class ExpenseTrackerView extends JFrame {
     buttonPanel.add(amountFilterBtn);
     buttonPanel.add(categoryFilterBtn);
     buttonPanel.add(undoBtn);
+    buttonPanel.add(importBtn);
     undoBtn.setEnabled(false);
   
+    // Edit menu with the undo and redo of the latest changes
+    undoChangeItem = new JMenuItem("Undo");
+    undoChangeItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Z, InputEvent.CTRL_DOWN_MASK));
+    redoChangeItem = new JMenuItem("Redo");
+    redoChangeItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Y, InputEvent.CTRL_DOWN_MASK));
+    setHistoryEnabled(false, false);
+    JMenu editMenu = new JMenu("Edit");
+    editMenu.add(undoChangeItem);
+    editMenu.add(redoChangeItem);
+    JMenuBar menuBar = new JMenuBar();
+    menuBar.add(editMenu);
+    setJMenuBar(menuBar);
+
     // Add panels to frame
     add(inputPanel, BorderLayout.NORTH);
     add(new JScrollPane(transactionsTable), BorderLayout.CENTER); 
@@ -97,7 +123,7 @@ public class ExpenseTrackerView extends JFrame {
   
   }
 
-  public DefaultTableModel getTableModel() {
+  public TransactionTableModel getTableModel() {
     return model;
   }
     
@@ -143,6 +169,32 @@ public class ExpenseTrackerView extends JFrame {
       undoBtn.addActionListener(listener);
   }
 
+  public void addUndoChangeListener(ActionListener listener) {
+      undoChangeItem.addActionListener(listener);
+  }
+
+  public void addRedoChangeListener(ActionListener listener) {
+      redoChangeItem.addActionListener(listener);
+  }
+
+  public void setHistoryEnabled(boolean canUndo, boolean canRedo) {
+      undoChangeItem.setEnabled(canUndo);
+      redoChangeItem.setEnabled(canRedo);
+  }
+
+  public void addImportListener(ActionListener listener) {
+      importBtn.addActionListener(listener);
+  }
+
+  public Path getImportFileInput() {
+      JFileChooser chooser = new JFileChooser();
+      chooser.setDialogTitle("Import transactions from CSV");
+      if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+          return null;
+      }
+      return chooser.getSelectedFile().toPath();
+  }
+
 
   public String getCategoryFilterInput() {
     return JOptionPane.showInputDialog(this, "Enter Category Filter:");
@@ -164,29 +216,11 @@ public class ExpenseTrackerView extends JFrame {
     }
   }
 
-  public void refreshTable(List<Transaction> transactions) {
-      // Clear existing rows
-      model.setRowCount(0);
-      // Get row count
-      int rowNum = model.getRowCount();
-      double totalCost=0;
-      // Calculate total cost
-      for(Transaction t : transactions) {
-        totalCost+=t.getAmount();
-      }
-  
-      // Add rows from transactions list
-      for(Transaction t : transactions) {
-        model.addRow(new Object[]{rowNum+=1,t.getAmount(), t.getCategory(), t.getTimestamp()}); 
-      }
-      // Add total row
-      Object[] totalRow = {"Total", null, null, totalCost};
-      model.addRow(totalRow);
-  
-      // Fire table update
-      transactionsTable.updateUI();
-  
-    }  
+  public void refreshTable() {
+      // Re-read every row from the model, at the end of the frame (timed by the table model)
+      model.refresh();
+  }
+
   
 
   public JButton getAddTransactionBtn() {
@@ -194,24 +228,33 @@ public class ExpenseTrackerView extends JFrame {
   }
 
 
-  public void highlightRows(List<Integer> rowIndexes) {
-      // The row indices are being used as hashcodes for the transactions.
-      // The row index directly maps to the transaction index in the list.
-      transactionsTable.setDefaultRenderer(Object.class, new DefaultTableCellRenderer() {
-          @Override
-          public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected,
-                                                        boolean hasFocus, int row, int column) {
-              Component c = super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
-              if (rowIndexes.contains(row)) {
-                  c.setBackground(new Color(173, 255, 168)); // Light green
-              } else {
-                  c.setBackground(table.getBackground());
-              }
-              return c;
-          }
-      });
+  public void highlightRows(BitSet rowIndexes) {
+      long start = System.nanoTime();
+      // The bits are the positions of the matching transactions,
+      // which directly map to the rows of the table.
+      BitSet changed = highlightRenderer.setHighlightedRows(rowIndexes);
+      // Only repaint the runs of rows that were highlighted or cleared.
+      int lastColumn = transactionsTable.getColumnCount() - 1;
+      for (int first = changed.nextSetBit(0); first >= 0; first = changed.nextSetBit(first)) {
+          int end = changed.nextClearBit(first);
+          Rectangle area = transactionsTable.getCellRect(first, 0, true)
+              .union(transactionsTable.getCellRect(end - 1, lastColumn, true));
+          transactionsTable.repaint(area);
+          first = end;
+      }
+      metrics.record(Operation.HIGHLIGHT_ROWS, start);
+  }
+
+  /**
+   * Shows a message to the user and brings the window back to the front.
+   */
+  public void showMessage(String message) {
+      JOptionPane.showMessageDialog(this, message);
+      toFront();
+  }
 
-      transactionsTable.repaint();
+  public BitSet getHighlightedRows() {
+      return highlightRenderer.getHighlightedRows();
   }
 
   public int[] getSelectedRows() {
@@ -0,0 +1,45 @@
+package view;
+
+import java.awt.Color;
+import java.awt.Component;
+import java.util.BitSet;
+
+import javax.swing.JTable;
+import javax.swing.table.DefaultTableCellRenderer;
+
+/**
+ * Renders the table cells, painting the highlighted rows in light green.
+ * A single instance stays installed; only its set of highlighted rows changes.
+ */
+class HighlightRenderer extends DefaultTableCellRenderer {
+
+  private static final long serialVersionUID = 1L;
+
+  static final Color HIGHLIGHT_COLOR = new Color(173, 255, 168); // Light green
+
+  private BitSet highlightedRows = new BitSet();
+
+  /**
+   * Replaces the highlighted rows.
+   *
+   * @return the rows whose highlight changed
+   */
+  BitSet setHighlightedRows(BitSet rows) {
+    BitSet changed = (BitSet) rows.clone();
+    changed.xor(highlightedRows);
+    highlightedRows = (BitSet) rows.clone();
+    return changed;
+  }
+
+  BitSet getHighlightedRows() {
+    return (BitSet) highlightedRows.clone();
+  }
+
+  @Override
+  public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected,
+                                                 boolean hasFocus, int row, int column) {
+    Component c = super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
+    c.setBackground(highlightedRows.get(row) ? HIGHLIGHT_COLOR : table.getBackground());
+    return c;
+  }
+}
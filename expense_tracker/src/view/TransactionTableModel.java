@@ -0,0 +1,238 @@
+package view;
+
+import javax.swing.Timer;
+import javax.swing.table.AbstractTableModel;
+
+import metrics.ExpenseTrackerMetrics;
+import metrics.Operation;
+import model.ExpenseTrackerModel;
+import model.ExpenseTrackerModelListener;
+import model.Transaction;
+
+/**
+ * Table model reading the rows straight from the ExpenseTrackerModel instead of
+ * keeping a copy of every transaction. The last row holds the total cost.
+ * An empty ledger shows no rows at all, not even the total: the table looks the
+ * same after the last transaction is removed as it did at startup, where the
+ * table used to keep a "Total 0" row instead.
+ *
+ * The table only asks for the cells it paints, so each visible cell is read from
+ * the model's columns and formatted on demand; nothing here grows with the ledger.
+ *
+ * It listens to the model for the rows that changed, so only those rows are re-rendered.
+ * Appends and refreshes reported within one frame (16 ms) are merged into a single
+ * table update, so a burst of inserts costs one repaint per frame, not one per insert.
+ */
+public class TransactionTableModel extends AbstractTableModel implements ExpenseTrackerModelListener {
+
+  private static final long serialVersionUID = 1L;
+
+  private static final String[] COLUMN_NAMES = {"serial", "Amount", "Category", "Date"};
+
+  private static final int FRAME_MILLIS = 16;
+
+  private ExpenseTrackerModel source;
+  private final Timer frameTimer;
+  // The number of transactions the table knows about. Rows appended after them are
+  // reported at the end of the frame, so until then the table keeps this count.
+  private int reportedCount;
+  private boolean pendingRefresh;
+  // When the pending refresh was first requested (System.nanoTime()).
+  private long refreshRequested;
+
+  public TransactionTableModel() {
+    frameTimer = new Timer(FRAME_MILLIS, e -> flush());
+    frameTimer.setRepeats(false);
+  }
+
+  public void setSource(ExpenseTrackerModel source) {
+    if (this.source != null) {
+      this.source.removeModelListener(this);
+    }
+    this.source = source;
+    source.addModelListener(this);
+    refresh();
+    flush();
+  }
+
+  @Override
+  public int getRowCount() {
+    // The total row is only shown once there is something to add up.
+    return reportedCount == 0 ? 0 : reportedCount + 1;
+  }
+
+  @Override
+  public int getColumnCount() {
+    return COLUMN_NAMES.length;
+  }
+
+  @Override
+  public String getColumnName(int column) {
+    return COLUMN_NAMES[column];
+  }
+
+  @Override
+  public Object getValueAt(int row, int column) {
+    if (row == reportedCount) {
+      switch (column) {
+        case 0:
+          return "Total";
+        case 3:
+          return source.getStats().getTotal();
+        default:
+          return null;
+      }
+    }
+    switch (column) {
+      case 0:
+        return row + 1;
+      case 1:
+        return source.getAmount(row);
+      case 2:
+        return source.getCategory(row);
+      default:
+        return Transaction.formatTimestamp(source.getEpochMillis(row));
+    }
+  }
+
+  /**
+   * Re-reads every row at the end of the frame, e.g. after the transactions changed
+   * in an unknown way.
+   */
+  public void refresh() {
+    if (!pendingRefresh) {
+      refreshRequested = System.nanoTime();
+    }
+    pendingRefresh = true;
+    frameTimer.start();
+  }
+
+  /**
+   * Reports that the transactions at positions first..last (inclusive) were appended.
+   * The table learns about them at the end of the frame, along with any other appends.
+   */
+  @Override
+  public void transactionsAppended(int first, int last) {
+    frameTimer.start();
+  }
+
+  /**
+   * Reports that transactions were inserted at the given positions (ascending, after
+   * the insertion). Those among the rows the table knows about are reported right away;
+   * those among the pending appends are reported with them.
+   */
+  @Override
+  public void transactionsInserted(int[] positions) {
+    if (positions.length == 0) {
+      return;
+    }
+    if (pendingRefresh || reportedCount == 0) {
+      // Every row is re-read anyway, or the total row appears as well.
+      flushRefresh();
+      return;
+    }
+    // Walk the runs of consecutive positions from the top down,
+    // so that every run is reported against the rows before it.
+    int start = 0;
+    // A transaction inserted after i others has positions[i] - i rows before it that were
+    // there already; past the known rows, it is one of the pending appends.
+    int known = reportedCount;
+    while (start < positions.length && positions[start] - start <= known) {
+      int end = start;
+      while (end + 1 < positions.length && positions[end + 1] == positions[end] + 1
+          && positions[end + 1] - (end + 1) <= known) {
+        end++;
+      }
+      reportedCount += end - start + 1;
+      fireTableRowsInserted(positions[start], positions[end]);
+      start = end + 1;
+    }
+    fireTableRowsUpdated(reportedCount, reportedCount);
+  }
+
+  /**
+   * Reports the pending changes to the table right away, instead of at the end of the frame.
+   */
+  public void flush() {
+    frameTimer.stop();
+    if (pendingRefresh) {
+      flushRefresh();
+      return;
+    }
+    int count = transactionCount();
+    if (count > reportedCount) {
+      int first = reportedCount;
+      reportedCount = count;
+      if (first == 0) {
+        // The table was empty, so the total row appears as well.
+        fireTableRowsInserted(first, count);
+      } else {
+        fireTableRowsInserted(first, count - 1);
+        fireTableRowsUpdated(count, count);
+      }
+    }
+  }
+
+  /**
+   * Reports that the transactions at the given positions (ascending, as they were
+   * before the removal) were removed. Removals of rows the table knows about are
+   * reported right away, so that the selection follows the remaining rows; removed
+   * pending appends are simply never reported.
+   */
+  @Override
+  public void transactionsRemoved(int[] positions) {
+    if (positions.length == 0) {
+      return;
+    }
+    if (pendingRefresh) {
+      flushRefresh();
+      return;
+    }
+    int known = 0;
+    while (known < positions.length && positions[known] < reportedCount) {
+      known++;
+    }
+    if (known == 0) {
+      return;
+    }
+    if (known == reportedCount) {
+      reportedCount = 0;
+      // The total row disappears along with the last known transaction.
+      fireTableDataChanged();
+      return;
+    }
+    // Walk the runs of consecutive positions from the bottom up,
+    // so that the positions still to be reported stay valid.
+    int end = known - 1;
+    while (end >= 0) {
+      int start = end;
+      while (start > 0 && positions[start - 1] == positions[start] - 1) {
+        start--;
+      }
+      reportedCount -= end - start + 1;
+      fireTableRowsDeleted(positions[start], positions[end]);
+      end = start - 1;
+    }
+    fireTableRowsUpdated(reportedCount, reportedCount);
+  }
+
+  // Re-reads every row, along with any pending appends.
+  private void flushRefresh() {
+    frameTimer.stop();
+    boolean requested = pendingRefresh;
+    pendingRefresh = false;
+    reportedCount = transactionCount();
+    long start = System.nanoTime();
+    fireTableDataChanged();
+    if (requested) {
+      // The table re-read its rows, and the refresh reached the screen (with the frame's wait)
+      ExpenseTrackerMetrics metrics = ExpenseTrackerMetrics.getInstance();
+      metrics.record(Operation.REFRESH_TABLE, start);
+      metrics.record(Operation.REFRESH, refreshRequested);
+    }
+  }
+
+  private int transactionCount() {
+    return source == null ? 0 : source.getTransactionCount();
+  }
+}
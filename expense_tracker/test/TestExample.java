@@ -1,26 +1,68 @@
 // package test;
 
 import java.awt.*;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.text.ParseException;
 
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+
 import org.junit.Before;
 import org.junit.Test;
 
 import controller.ExpenseTrackerController;
+import controller.ExpenseTrackerEngine;
+import controller.ImportReport;
+import controller.InputValidation;
+import metrics.ExpenseTrackerMetrics;
+import metrics.LatencyHistogram;
+import metrics.Operation;
+import model.Category;
+import model.CategoryRegistry;
+import model.ColumnarTransactionStore;
+import model.ConcurrentExpenseTrackerModel;
 import model.ExpenseTrackerModel;
+import model.ExpenseTrackerModelListener;
 import model.Transaction;
 import view.ExpenseTrackerView;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
+import javax.swing.event.TableModelEvent;
+import javax.swing.table.TableModel;
 import java.time.LocalDateTime;
 import model.Filter.AmountFilter;
+import model.Filter.AmountRangeFilter;
+import model.Filter.AndFilter;
 import model.Filter.CategoryFilter;
+import model.Filter.NotFilter;
+import model.Filter.OrFilter;
+import model.Filter.ParallelFilterExecutor;
+import model.Filter.TimeRangeFilter;
 import model.Filter.TransactionFilter;
+import model.persistence.LedgerSnapshot;
+import model.persistence.TransactionJournal;
+import model.persistence.TransactionJournal.FsyncPolicy;
 
 
 import static org.junit.Assert.*;
@@ -39,12 +81,8 @@ public class TestExample {
   }
 
     public double getTotalCost() {
-        double totalCost = 0.0;
-        List<Transaction> allTransactions = model.getTransactions(); // Using the model's getTransactions method
-        for (Transaction transaction : allTransactions) {
-            totalCost += transaction.getAmount();
-        }
-        return totalCost;
+        // The model keeps the running total, so there is no need to rescan the transactions
+        return model.getStats().getTotal();
     }
 
 
@@ -65,6 +103,7 @@ public class TestExample {
         assertNotNull(nowDate);
         // They may differ by 60 ms
         assertTrue(nowDate.getTime() - transactionDate.getTime() < 60000);
+        assertTrue(nowDate.getTime() - transaction.getEpochMillis() < 60000);
     }
 
 
@@ -170,7 +209,7 @@ public class TestExample {
                 {1, 50.0 , "food", new Date().getTime() },
                 {"Total", null , null, 50.0 }
         };
-        DefaultTableModel tableListModel = view.getTableModel();
+        TableModel tableListModel = view.getTableModel();
         Date transactionDate = null;
         try {
             transactionDate = Transaction.dateFormatter.parse((String) tableListModel.getValueAt(0, 3));
@@ -317,6 +356,1189 @@ public class TestExample {
         }
     }
 
+    @Test
+    public void filterIndexesAfterRemove() {
+        // Pre-condition: List of transactions is empty
+        assertEquals(0, model.getTransactions().size());
+
+        // Perform the action: Add transactions and remove the first one
+        Transaction food = new Transaction(50.0, "food");
+        Transaction bills = new Transaction(50.0, "Bills");
+        Transaction otherBills = new Transaction(20.0, "bills");
+        model.addTransaction(food);
+        model.addTransaction(bills);
+        model.addTransaction(otherBills);
+        model.removeTransaction(food);
+
+        // Post-condition: the indexed filters see the shifted positions
+        assertEquals(Arrays.asList(bills, otherBills), new CategoryFilter("BILLS").filter(model));
+        assertEquals(Arrays.asList(bills), new AmountFilter(50.0).filter(model));
+        assertEquals(0, new CategoryFilter("food").filter(model).size());
+    }
+
+    @Test
+    public void filterRowsKeepsDuplicatePositions() {
+        // Pre-condition: List of transactions is empty
+        assertEquals(0, model.getTransactions().size());
+
+        // Perform the action: Add the same transaction twice around another one
+        Transaction food = new Transaction(50.0, "food");
+        model.addTransaction(food);
+        model.addTransaction(new Transaction(10.0, "bills"));
+        model.addTransaction(food);
+
+        // Post-condition: every matching row is reported, not just the first equal one
+        BitSet expected = new BitSet();
+        expected.set(0);
+        expected.set(2);
+        assertEquals(expected, new AmountFilter(50.0).filterRows(model));
+        assertEquals(expected, new CategoryFilter("food").filterRows(model));
+        assertEquals(expected, new CategoryFilter("food").filterRows(model.getTransactions()));
+    }
+
+    @Test
+    public void tableModelFiresOnlyChangedRows() {
+        // Pre-condition: two transactions and their total are in the table
+        controller.addTransaction(50.0, "food");
+        controller.addTransaction(10.0, "bills");
+        view.getTableModel().flush();
+        List<TableModelEvent> events = new ArrayList<>();
+        view.getTableModel().addTableModelListener(events::add);
+
+        // Perform the action: Add one more transaction and end the frame
+        controller.addTransaction(20.0, "travel");
+        view.getTableModel().flush();
+
+        // Post-condition: the new row is inserted and only the total row is updated
+        assertEquals(2, events.size());
+        assertEquals(TableModelEvent.INSERT, events.get(0).getType());
+        assertEquals(2, events.get(0).getFirstRow());
+        assertEquals(2, events.get(0).getLastRow());
+        assertEquals(TableModelEvent.UPDATE, events.get(1).getType());
+        assertEquals(3, events.get(1).getFirstRow());
+        assertEquals(80.0, view.getTableModel().getValueAt(3, 3));
+    }
+
+    @Test
+    public void statsFollowAddAndRemove() {
+        // Pre-condition: List of transactions is empty
+        assertEquals(0, model.getStats().getCount());
+
+        // Perform the action: Add transactions and remove the largest one
+        Transaction bills = new Transaction(100.0, "bills");
+        model.addTransaction(new Transaction(50.0, "food"));
+        model.addTransaction(bills);
+        model.addTransaction(new Transaction(0.1, "Food"));
+        model.addTransaction(new Transaction(0.2, "food"));
+        model.removeTransaction(bills);
+
+        // Post-condition: the aggregates match the remaining transactions
+        assertEquals(3, model.getStats().getCount());
+        assertEquals(50.3, model.getStats().getTotal(), 1e-9);
+        assertEquals(0.1, model.getStats().getMin(), 0.0);
+        assertEquals(50.0, model.getStats().getMax(), 0.0);
+        assertEquals(50.3, model.getStats().getCategoryTotal("FOOD"), 1e-9);
+        assertEquals(0.0, model.getStats().getCategoryTotal("bills"), 0.0);
+        assertFalse(model.getStats().getCategoryTotals().containsKey("bills"));
+    }
+
+    @Test
+    public void columnarStoreRoundTrip() {
+        // Pre-condition: a model backed by the columnar store is empty
+        ExpenseTrackerModel columnarModel = new ExpenseTrackerModel(new ColumnarTransactionStore());
+        assertEquals(0, columnarModel.getTransactions().size());
+
+        // Perform the action: Add transactions and remove one of them
+        Transaction food = new Transaction(50.0, "food");
+        Transaction bills = new Transaction(10.0, "Bills");
+        columnarModel.addTransaction(food);
+        columnarModel.addTransaction(bills);
+        columnarModel.addTransaction(new Transaction(20.0, "food"));
+        columnarModel.removeTransaction(food);
+
+        // Post-condition: the rows read back hold the same values
+        assertEquals(2, columnarModel.getTransactionCount());
+        checkTransaction(10.0, "Bills", columnarModel.getTransaction(0));
+        assertEquals(bills.getTimestamp(), columnarModel.getTransaction(0).getTimestamp());
+        checkTransaction(20.0, "food", columnarModel.getTransaction(1));
+        assertEquals(30.0, columnarModel.getStats().getTotal(), 0.01);
+        assertEquals(1, new CategoryFilter("food").filter(columnarModel).size());
+    }
+
+    @Test
+    public void columnarStoreKeepsManySpellingsOfACategory() {
+        // Pre-condition: a columnar model and 300 spellings of the same category
+        ExpenseTrackerModel columnarModel = new ExpenseTrackerModel(new ColumnarTransactionStore());
+        List<String> spellings = caseSpellings("entertainment", 300);
+
+        // Perform the action: Add a row in each spelling, then remove the first one
+        for (String spelling : spellings) {
+            columnarModel.addTransaction(new Transaction(1.0, spelling));
+        }
+        columnarModel.removeTransaction(columnarModel.getTransaction(0));
+
+        // Post-condition: every row kept the spelling it was entered with
+        assertEquals(299, columnarModel.getTransactionCount());
+        for (int i = 0; i < 299; i++) {
+            assertEquals(spellings.get(i + 1), columnarModel.getTransaction(i).getCategory());
+        }
+        assertEquals(299.0, columnarModel.getStats().getCategoryTotal("entertainment"), 1e-9);
+    }
+
+    // The first count spellings of the word, the letters made upper case after the bits of their index.
+    private static List<String> caseSpellings(String word, int count) {
+        List<String> spellings = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            StringBuilder spelling = new StringBuilder(word);
+            for (int j = 0; j < word.length(); j++) {
+                if ((i & (1 << j)) != 0) {
+                    spelling.setCharAt(j, Character.toUpperCase(word.charAt(j)));
+                }
+            }
+            spellings.add(spelling.toString());
+        }
+        return spellings;
+    }
+
+    @Test
+    public void journalReplayRebuildsModel() throws IOException {
+        Path path = Files.createTempFile("journal", ".log");
+        try {
+            // Pre-condition: a journaled model with a few changes
+            TransactionJournal journal = TransactionJournal.open(path, FsyncPolicy.GROUP_COMMIT, 5);
+            model.setJournal(journal);
+            Transaction bills = new Transaction(10.0, "bills");
+            model.addTransaction(new Transaction(50.0, "food"));
+            model.addTransaction(bills);
+            model.addTransaction(new Transaction(20.0, "travel"));
+            model.removeTransaction(bills);
+            journal.close();
+            // A torn record left behind by a crash
+            Files.write(path, new byte[]{0, 0, 0, 30, 1, 2}, StandardOpenOption.APPEND);
+
+            // Perform the action: Replay the journal into a new model
+            ExpenseTrackerModel replayed = new ExpenseTrackerModel();
+            TransactionJournal reopened = TransactionJournal.open(path, FsyncPolicy.PER_OPERATION, 0);
+            assertEquals(4, reopened.replay(replayed));
+            reopened.close();
+
+            // Post-condition: the replayed model holds the same transactions
+            assertEquals(2, replayed.getTransactionCount());
+            for (int i = 0; i < 2; i++) {
+                Transaction expected = model.getTransaction(i);
+                Transaction actual = replayed.getTransaction(i);
+                assertEquals(expected.getAmount(), actual.getAmount(), 0.0);
+                assertEquals(expected.getCategory(), actual.getCategory());
+                assertEquals(expected.getEpochMillis(), actual.getEpochMillis());
+            }
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    public void journalReplayStopsAtARecordOfAnUnconfiguredCategory() throws IOException {
+        Path path = Files.createTempFile("journal", ".log");
+        try {
+            // Pre-condition: a journal of a food and a travel transaction
+            TransactionJournal journal = TransactionJournal.open(path, FsyncPolicy.PER_OPERATION, 0);
+            model.setJournal(journal);
+            model.addTransaction(new Transaction(50.0, "food"));
+            model.addTransaction(new Transaction(20.0, "travel"));
+            journal.close();
+            long length = Files.size(path);
+            CategoryRegistry.configure(Arrays.asList("food", "bills"));
+
+            // Perform the action: Replay it without the travel category
+            ExpenseTrackerModel replayed = new ExpenseTrackerModel();
+            TransactionJournal reopened = TransactionJournal.open(path, FsyncPolicy.PER_OPERATION, 0);
+            try {
+                reopened.replay(replayed);
+                fail("The travel record cannot be replayed");
+            } catch (IOException e) {
+                // Post-condition: the replay is reported and stops at that record
+                assertTrue(e.getMessage().startsWith("Journal record 2 cannot be replayed"));
+            } finally {
+                reopened.close();
+            }
+            assertEquals(1, replayed.getTransactionCount());
+            // and the journal is not cut off
+            assertEquals(length, Files.size(path));
+        } finally {
+            CategoryRegistry.configure(CategoryRegistry.DEFAULT_CATEGORIES);
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    public void snapshotPlusJournalTail() throws IOException {
+        Path journalPath = Files.createTempFile("journal", ".log");
+        Path snapshotPath = Files.createTempFile("ledger", ".snapshot");
+        try {
+            // Pre-condition: a snapshot of two transactions and one more journaled after it
+            TransactionJournal journal = TransactionJournal.open(journalPath, FsyncPolicy.PER_OPERATION, 0);
+            model.setJournal(journal);
+            model.addTransaction(new Transaction(50.0, "food"));
+            model.addTransaction(new Transaction(10.0, "Bills"));
+            LedgerSnapshot.write(model, journal.checkpoint(), snapshotPath);
+            model.addTransaction(new Transaction(20.0, "travel"));
+            journal.close();
+
+            // Perform the action: Load the snapshot and replay the journal tail
+            LedgerSnapshot snapshot = LedgerSnapshot.open(snapshotPath);
+            ExpenseTrackerModel loaded = new ExpenseTrackerModel(snapshot.getStore());
+            TransactionJournal reopened = TransactionJournal.open(journalPath, FsyncPolicy.PER_OPERATION, 0);
+            assertEquals(1, reopened.replay(loaded, snapshot.getJournalPosition()));
+            reopened.close();
+
+            // Post-condition: the loaded model holds every transaction and can still be changed
+            assertEquals(3, loaded.getTransactionCount());
+            assertEquals(80.0, loaded.getStats().getTotal(), 0.01);
+            assertEquals(model.getTransaction(1).getTimestamp(), loaded.getTransaction(1).getTimestamp());
+            assertEquals("Bills", loaded.getTransaction(1).getCategory());
+            loaded.removeTransactionAt(0);
+            assertEquals(30.0, loaded.getStats().getTotal(), 0.01);
+            assertEquals(1, new CategoryFilter("bills").filterRows(loaded).cardinality());
+        } finally {
+            Files.deleteIfExists(journalPath);
+            Files.deleteIfExists(snapshotPath);
+        }
+    }
+
+    @Test
+    public void snapshotKeepsManySpellingsOfACategory() throws IOException {
+        Path snapshotPath = Files.createTempFile("ledger", ".snapshot");
+        try {
+            // Pre-condition: a model with a row in each of 300 spellings of the same category
+            List<String> spellings = caseSpellings("entertainment", 300);
+            for (String spelling : spellings) {
+                model.addTransaction(new Transaction(1.0, spelling));
+            }
+            model.addTransaction(new Transaction(2.0, "food"));
+
+            // Perform the action: Write the snapshot and open it again
+            LedgerSnapshot.write(model, 0, snapshotPath);
+            ExpenseTrackerModel loaded = new ExpenseTrackerModel(LedgerSnapshot.open(snapshotPath).getStore());
+
+            // Post-condition: every row kept the spelling it was entered with
+            assertEquals(301, loaded.getTransactionCount());
+            for (int i = 0; i < 300; i++) {
+                assertEquals(spellings.get(i), loaded.getTransaction(i).getCategory());
+            }
+            assertEquals("food", loaded.getTransaction(300).getCategory());
+            assertEquals(300.0, loaded.getStats().getCategoryTotal("Entertainment"), 1e-9);
+            loaded.removeTransactionAt(0);
+            assertEquals(spellings.get(1), loaded.getTransaction(0).getCategory());
+        } finally {
+            Files.deleteIfExists(snapshotPath);
+        }
+    }
+
+    @Test
+    public void importCsvReportsRejectedLines() throws IOException {
+        Path path = Files.createTempFile("transactions", ".csv");
+        try {
+            // Pre-condition: a bank export with a header, two valid and two invalid lines
+            Files.write(path, Arrays.asList(
+                    "Amount,Category,Date",
+                    "50.0,food,01-11-2023 10:15",
+                    "-2,food",
+                    "\"10\",\"bills\"",
+                    "20,invalidCategory"));
+
+            // Perform the action: Import the file through the controller
+            ImportReport report = controller.importCsv(path);
+
+            // Post-condition: only the valid lines are added, in file order
+            assertEquals(2, report.getImportedCount());
+            assertEquals(2, report.getRejectedCount());
+            assertEquals(3, report.getRejections().get(0).getLineNumber());
+            assertEquals("The amount is not valid.", report.getRejections().get(0).getReason());
+            assertEquals("The category is not valid.", report.getRejections().get(1).getReason());
+            assertEquals(2, model.getTransactionCount());
+            assertEquals("01-11-2023 10:15", model.getTransaction(0).getTimestamp());
+            assertEquals("bills", model.getTransaction(1).getCategory());
+
+            // The table shows both rows and the total
+            assertEquals(3, view.getTransactionsTable().getRowCount());
+            assertEquals(60.0, view.getTableModel().getValueAt(2, 3));
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    public void importCsvRejectsAmountsThatAreNotFinite() throws IOException {
+        Path path = Files.createTempFile("transactions", ".csv");
+        try {
+            // Pre-condition: a file with NaN and infinite amounts around a valid line
+            Files.write(path, Arrays.asList(
+                    "NaN,food",
+                    "Infinity,food",
+                    "-Infinity,food",
+                    "10,food"));
+
+            // Perform the action: Import the file through the controller
+            ImportReport report = controller.importCsv(path);
+
+            // Post-condition: only the finite amount is added and the total stays a number
+            assertEquals(1, report.getImportedCount());
+            assertEquals(3, report.getRejectedCount());
+            for (int i = 0; i < 3; i++) {
+                assertEquals(i + 1, report.getRejections().get(i).getLineNumber());
+                assertEquals("The amount is not valid.", report.getRejections().get(i).getReason());
+            }
+            assertEquals(10.0, model.getStats().getTotal(), 0.01);
+            assertFalse(InputValidation.isValidAmount(Double.NaN));
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    public void importLargerThanTheHistoryLimitIsReported() throws IOException {
+        // Pre-condition: an undo history with room for about ten rows
+        Path path = Files.createTempFile("transactions", ".csv");
+        try {
+            List<String> lines = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                lines.add("10,food");
+            }
+            Files.write(path, lines);
+            controller.getHistory().setMemoryLimit(400);
+
+            // Perform the action: Import a hundred rows
+            ImportReport report = controller.importCsv(path);
+
+            // Post-condition: the rows are imported, and the report says they cannot be undone
+            assertEquals(100, model.getTransactionCount());
+            assertFalse(report.isUndoable());
+            assertTrue(report.toString().endsWith("The import is too large to be undone."));
+            assertFalse(controller.getHistory().canUndo());
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    public void undoKeepsTheSpellingOfTheCategories() {
+        // Pre-condition: transactions spelled in different cases
+        controller.addTransaction(50.0, "Food");
+        controller.addTransaction(10.0, "BILLS");
+        controller.addTransaction(20.0, "travel");
+
+        // Perform the action: Remove two rows, undo and redo the removal, then undo it again
+        controller.removeTransactions(new int[]{0, 1});
+        assertTrue(controller.undo());
+        assertTrue(controller.redo());
+        assertTrue(controller.undo());
+
+        // Post-condition: the rows come back spelled as they were entered
+        assertEquals("Food", model.getCategory(0));
+        assertEquals("BILLS", model.getCategory(1));
+        assertEquals("travel", model.getCategory(2));
+
+        // A removal larger than the limit is not captured, and forgets the earlier changes
+        controller.getHistory().setMemoryLimit(100);
+        controller.removeTransactions(new int[]{0, 1, 2});
+        assertEquals(0, model.getTransactionCount());
+        assertFalse(controller.getHistory().canUndo());
+        assertEquals(0, controller.getHistory().getMemoryUsed());
+    }
+
+    @Test
+    public void importCsvRejectsAnUnparseableFirstLine() throws IOException {
+        // Pre-condition: a file whose first line is neither a header nor a transaction
+        Path path = Files.createTempFile("transactions", ".csv");
+        try {
+            Files.write(path, Arrays.asList(
+                    "abc,food",
+                    "50.0,food"));
+
+            // Perform the action: Import the file through the controller
+            ImportReport report = controller.importCsv(path);
+
+            // Post-condition: the first line is reported rather than skipped as a header
+            assertEquals(1, report.getImportedCount());
+            assertEquals(1, report.getRejectedCount());
+            assertEquals(1, report.getRejections().get(0).getLineNumber());
+            assertEquals(1, model.getTransactionCount());
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    public void batchAddAndRemove() throws IOException {
+        Path path = Files.createTempFile("journal", ".log");
+        try {
+            // Pre-condition: a journaled ledger of 500 transactions added as one batch
+            TransactionJournal journal = TransactionJournal.open(path, FsyncPolicy.OS_MANAGED, 5);
+            model.setJournal(journal);
+            List<Transaction> batch = new ArrayList<>();
+            for (int i = 0; i < 500; i++) {
+                batch.add(new Transaction(i % 2 == 0 ? 10.0 : 20.0, i % 3 == 0 ? "food" : "bills"));
+            }
+            controller.addTransactions(batch);
+            assertEquals(501, view.getTransactionsTable().getRowCount());
+
+            // Perform the action: Remove every row but the ten last ones, with a duplicate row
+            int[] rows = new int[491];
+            for (int i = 0; i < 490; i++) {
+                rows[i] = 489 - i;
+            }
+            rows[490] = 0;
+            controller.removeTransactions(rows);
+            journal.close();
+
+            // Post-condition: the ten last transactions remain, and the indexes and table follow
+            assertEquals(10, model.getTransactionCount());
+            for (int i = 0; i < 10; i++) {
+                assertSame(batch.get(490 + i), model.getTransaction(i));
+            }
+            assertEquals(150.0, model.getStats().getTotal(), 0.01);
+            assertEquals(new CategoryFilter("food").filterRows(model.getTransactions()),
+                    new CategoryFilter("food").filterRows(model));
+            assertEquals(11, view.getTransactionsTable().getRowCount());
+
+            // The batch removal replays to the same ledger
+            ExpenseTrackerModel replayed = new ExpenseTrackerModel();
+            TransactionJournal reopened = TransactionJournal.open(path, FsyncPolicy.OS_MANAGED, 5);
+            reopened.replay(replayed);
+            reopened.close();
+            assertEquals(10, replayed.getTransactionCount());
+            assertEquals(150.0, replayed.getStats().getTotal(), 0.01);
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    public void categoryRegistryInternsCategories() {
+        // Pre-condition: the built-in categories are registered
+        CategoryRegistry registry = CategoryRegistry.getInstance();
+
+        // Perform the action: Look categories up in different cases
+        Category food = registry.lookup("food");
+
+        // Post-condition: every spelling maps to the same handle and bad input is rejected
+        assertSame(food, registry.lookup("FOOD"));
+        assertSame(food, new Transaction(5.0, "Food").getCategoryHandle());
+        assertNull(registry.lookup("f00d"));
+        assertNull(registry.lookup(""));
+        assertNull(registry.lookup(null));
+        assertNull(registry.lookup("rent"));
+
+        try {
+            // Perform the action: Replace the categories
+            CategoryRegistry.configure(Arrays.asList("rent", "Food"));
+
+            // Post-condition: only the configured categories are valid
+            assertTrue(InputValidation.isValidCategory("Rent"));
+            assertFalse(InputValidation.isValidCategory("travel"));
+            assertEquals("food", CategoryRegistry.getInstance().lookup("FOOD").getName());
+        } finally {
+            CategoryRegistry.configure(CategoryRegistry.DEFAULT_CATEGORIES);
+        }
+    }
+
+    @Test
+    public void compositeFiltersMatchScan() {
+        // Pre-condition: a ledger mixing categories and amounts
+        for (int i = 0; i < 300; i++) {
+            model.addTransaction(new Transaction(i % 4 == 0 ? 60.0 : 10.0, i % 3 == 0 ? "food" : "travel"));
+        }
+        TransactionFilter food = new CategoryFilter("food");
+        TransactionFilter sixty = new AmountFilter(60.0);
+        // A filter without an index, answered by scanning
+        TransactionFilter evenAmount = transactions -> {
+            List<Transaction> even = new ArrayList<>();
+            for (Transaction t : transactions) {
+                if (t.getAmount() % 20 == 0) {
+                    even.add(t);
+                }
+            }
+            return even;
+        };
+
+        // Perform the action and Post-condition: the planned composites match a plain scan
+        TransactionFilter[] composites = {
+            new AndFilter(food, sixty),
+            new AndFilter(evenAmount, food, sixty),
+            new OrFilter(food, sixty),
+            new OrFilter(new AndFilter(food, sixty), new NotFilter(food)),
+            new NotFilter(new AndFilter(food, evenAmount)),
+            new AndFilter(food, new NotFilter(food))
+        };
+        for (TransactionFilter composite : composites) {
+            assertEquals(composite.filterRows(model.getTransactions()), composite.filterRows(model));
+            assertEquals(composite.filter(model.getTransactions()), composite.filter(model));
+        }
+        assertEquals(25, new AndFilter(food, sixty).filterRows(model).cardinality());
+        assertTrue(new AndFilter(food, new NotFilter(food)).filterRows(model).isEmpty());
+
+        // Perform the action: Narrow a category filter down with an amount filter
+        controller.setFilter(food);
+        controller.addFilter(sixty);
+        controller.applyFilter();
+
+        // Post-condition: only the rows matching both are highlighted
+        assertEquals(new AndFilter(food, sixty).filterRows(model), highlightedRows());
+    }
+
+    @Test
+    public void rangeFiltersUseSortedIndexes() {
+        // Pre-condition: one transaction a day for 100 days, with amounts from 1 to 100
+        long day = 24L * 60 * 60 * 1000;
+        long start = 1_600_000_000_000L;
+        for (int i = 0; i < 100; i++) {
+            model.addTransaction(new Transaction((i * 37) % 100 + 1, "bills", start + i * day));
+        }
+
+        // Perform the action: Filter by an amount range and a time window
+        AmountRangeFilter amounts = new AmountRangeFilter(10.0, 19.5);
+        TimeRangeFilter window = new TimeRangeFilter(start + 30 * day, start + 60 * day);
+
+        // Post-condition: the index lookups match a plain scan
+        assertEquals(10, amounts.filterRows(model).cardinality());
+        assertEquals(amounts.filterRows(model.getTransactions()), amounts.filterRows(model));
+        assertEquals(30, window.filterRows(model).cardinality());
+        assertEquals(window.filterRows(model.getTransactions()), window.filterRows(model));
+        assertEquals(30, window.filter(model).size());
+        assertEquals(30, window.estimateMatches(model));
+
+        // Perform the action: Remove the first 40 days
+        int[] rows = new int[40];
+        for (int i = 0; i < 40; i++) {
+            rows[i] = i;
+        }
+        model.removeAt(rows);
+
+        // Post-condition: the indexes follow the shifted positions
+        assertEquals(20, window.filterRows(model).cardinality());
+        assertEquals(window.filterRows(model.getTransactions()), window.filterRows(model));
+        assertEquals(amounts.filterRows(model.getTransactions()), amounts.filterRows(model));
+        assertTrue(TimeRangeFilter.lastDays(30).filterRows(model).isEmpty());
+    }
+
+    @Test
+    public void sortedIndexesCountRangesOfLargeLedgers() {
+        // Pre-condition: more transactions than the indexes buffer before merging, in random order
+        Random random = new Random(13);
+        for (int i = 0; i < 20_000; i++) {
+            model.addTransaction(new Transaction(random.nextInt(1000) + 1, "food", random.nextInt(1_000_000)));
+        }
+        model.insertAt(new int[]{0, 5000}, Arrays.asList(
+                new Transaction(500.5, "bills", 10), new Transaction(1000, "bills", 999_999)));
+        model.removeAt(new int[]{1, 2, 3, 10_000});
+
+        // Perform the action: Count and filter ranges through the indexes
+        AmountRangeFilter amounts = new AmountRangeFilter(250.0, 500.5);
+        TimeRangeFilter window = new TimeRangeFilter(100_000, 400_000);
+
+        // Post-condition: the counts and rows match a plain scan
+        BitSet amountRows = amounts.filterRows(model.getTransactions());
+        BitSet windowRows = window.filterRows(model.getTransactions());
+        assertEquals(amountRows, amounts.filterRows(model));
+        assertEquals(amountRows.cardinality(), model.countByAmountRange(250.0, 500.5));
+        assertEquals(windowRows, window.filterRows(model));
+        assertEquals(windowRows.cardinality(), model.countByTime(100_000, 400_000));
+        assertEquals(1, model.countByAmount(500.5));
+        assertEquals(1000.0, model.getStats().getMax(), 0);
+    }
+
+    @Test
+    public void parallelScanMatchesSequentialScan() {
+        // Pre-condition: a ledger longer than several parallel chunks
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            transactions.add(new Transaction(i % 7 + 1, i % 5 == 0 ? "food" : "other"));
+        }
+        TransactionFilter filter = new OrFilter(new AmountFilter(3.0), new CategoryFilter("food"));
+        BitSet sequential = filter.filterRows(transactions);
+        int threshold = ParallelFilterExecutor.getThreshold();
+        try {
+            // Perform the action: Scan the same ledger in parallel
+            ParallelFilterExecutor.setThreshold(1000);
+            BitSet parallel = filter.filterRows(transactions);
+
+            // Post-condition: the same positions match, in order
+            assertEquals(sequential, parallel);
+            assertTrue(parallel.get(0));
+            assertFalse(parallel.get(1));
+            assertTrue(parallel.get(2));
+        } finally {
+            ParallelFilterExecutor.setThreshold(threshold);
+        }
+    }
+
+    @Test
+    public void transactionSnapshotsAreIsolated() {
+        ExpenseTrackerModel[] models = { model, new ExpenseTrackerModel(new ColumnarTransactionStore()) };
+        for (ExpenseTrackerModel ledger : models) {
+            // Pre-condition: a snapshot of a ledger of three transactions
+            ledger.addTransaction(new Transaction(10.0, "food"));
+            ledger.addTransaction(new Transaction(20.0, "travel"));
+            ledger.addTransaction(new Transaction(30.0, "bills"));
+            List<Transaction> snapshot = ledger.getTransactions();
+
+            // Perform the action: Append, then remove the first transaction
+            ledger.addTransaction(new Transaction(40.0, "other"));
+            ledger.removeTransactionAt(0);
+
+            // Post-condition: the snapshot still shows the three original rows
+            assertEquals(3, snapshot.size());
+            assertEquals(10.0, snapshot.get(0).getAmount(), 0.01);
+            assertEquals(30.0, snapshot.get(2).getAmount(), 0.01);
+            assertEquals(3, ledger.getTransactionCount());
+            assertEquals(40.0, ledger.getTransactions().get(2).getAmount(), 0.01);
+            try {
+                snapshot.add(new Transaction(50.0, "food"));
+                fail("The snapshot must be read-only");
+            } catch (UnsupportedOperationException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void concurrentSubmitsAreDrainedOnTheOwnerThread() throws Exception {
+        // Pre-condition: a concurrent model owned by a single thread
+        ExecutorService owner = Executors.newSingleThreadExecutor();
+        try {
+            ConcurrentExpenseTrackerModel ledger = new ConcurrentExpenseTrackerModel(owner);
+            List<int[]> ingested = new ArrayList<>();
+            ledger.addModelListener(new ExpenseTrackerModelListener() {
+                @Override
+                public void transactionsAppended(int first, int last) {
+                    ingested.add(new int[]{first, last});
+                }
+            });
+
+            // Perform the action: Submit 4 x 5000 transactions from four threads
+            Thread[] writers = new Thread[4];
+            for (int w = 0; w < writers.length; w++) {
+                writers[w] = new Thread(() -> {
+                    for (int i = 0; i < 5000; i++) {
+                        ledger.submit(new Transaction(1.0, "food"));
+                    }
+                });
+                writers[w].start();
+            }
+            for (Thread writer : writers) {
+                writer.join();
+            }
+            owner.submit(ledger::drain).get();
+
+            // Post-condition: every transaction was added once, in contiguous drained ranges
+            assertEquals(20000, owner.submit(ledger::getTransactionCount).get().intValue());
+            assertEquals(20000.0, owner.submit(() -> ledger.getStats().getTotal()).get(), 0.01);
+            assertEquals(20000, ledger.getPublishedTransactions().size());
+            int next = 0;
+            for (int[] range : ingested) {
+                assertEquals(next, range[0]);
+                next = range[1] + 1;
+            }
+            assertEquals(20000, next);
+        } finally {
+            owner.shutdown();
+        }
+    }
+
+    @Test
+    public void highlightsFollowChangesWithoutFilteringAgain() {
+        // Pre-condition: a scanning filter that counts the transactions it tests
+        int[] tested = new int[1];
+        TransactionFilter large = new TransactionFilter() {
+            @Override
+            public List<Transaction> filter(List<Transaction> transactions) {
+                List<Transaction> matches = new ArrayList<>();
+                for (Transaction transaction : transactions) {
+                    if (matches(transaction)) {
+                        matches.add(transaction);
+                    }
+                }
+                return matches;
+            }
+
+            @Override
+            public boolean matches(Transaction transaction) {
+                tested[0]++;
+                return transaction.getAmount() >= 100;
+            }
+        };
+        for (int i = 0; i < 10; i++) {
+            model.addTransaction(new Transaction(i % 2 == 0 ? 150.0 : 50.0, "food"));
+        }
+        controller.setFilter(large);
+        controller.applyFilter();
+        assertEquals(10, tested[0]);
+
+        // Perform the action: Append, insert and remove rows
+        controller.addTransaction(200.0, "bills");
+        model.insertAt(new int[]{0, 3}, Arrays.asList(new Transaction(300.0, "food"), new Transaction(1.0, "food")));
+        model.removeAt(new int[]{1, 5});
+
+        // Post-condition: only the new rows were tested, and the highlights match a full filter
+        assertEquals(13, tested[0]);
+        assertEquals(large.filterRows(model.getTransactions()), view.getHighlightedRows());
+    }
+
+    @Test
+    public void concurrentDrainsAreRecordedInTheHistory() {
+        // Pre-condition: a concurrent model drained right away by its owner
+        ConcurrentExpenseTrackerModel ledger = new ConcurrentExpenseTrackerModel(Runnable::run);
+        ExpenseTrackerController ledgerController = new ExpenseTrackerController(ledger, view);
+
+        // Perform the action: Submit two transactions from elsewhere
+        ledger.submit(new Transaction(10.0, "food"));
+        ledger.submit(new Transaction(20.0, "bills"));
+
+        // Post-condition: the drained rows can be undone
+        assertEquals(2, ledger.getTransactionCount());
+        assertTrue(ledgerController.getHistory().canUndo());
+        while (ledgerController.undo()) {
+            // Undo every drain
+        }
+        assertEquals(0, ledger.getTransactionCount());
+    }
+
+    @Test
+    public void backgroundFilterPublishesOnlyTheLatestRequest() throws Exception {
+        // Pre-condition: a ledger and a filter that has to scan it
+        for (int i = 0; i < 1000; i++) {
+            controller.addTransaction(i % 2 == 0 ? 10.0 : 20.0, "food");
+        }
+        TransactionFilter scanTen = transactions -> {
+            List<Transaction> ten = new ArrayList<>();
+            for (Transaction t : transactions) {
+                if (t.getAmount() == 10.0) {
+                    ten.add(t);
+                }
+            }
+            return ten;
+        };
+        TransactionFilter scanTwenty = new NotFilter(scanTen);
+        assertFalse(scanTwenty.isIndexed());
+
+        // Perform the action: Filter twice in a row on the EDT, the second request superseding the first
+        List<Future<BitSet>> requests = new ArrayList<>();
+        SwingUtilities.invokeAndWait(() -> {
+            controller.setFilter(scanTen);
+            requests.add(controller.applyFilterInBackground());
+            controller.setFilter(scanTwenty);
+            requests.add(controller.applyFilterInBackground());
+        });
+        BitSet latest = requests.get(1).get();
+
+        // Post-condition: the view ends up with the rows of the second filter only
+        assertEquals(500, latest.cardinality());
+        assertTrue(latest.get(1));
+        BitSet highlighted = new BitSet();
+        for (int attempt = 0; attempt < 100 && !highlighted.equals(latest); attempt++) {
+            Thread.sleep(10);
+            SwingUtilities.invokeAndWait(() -> highlighted.clear());
+            SwingUtilities.invokeAndWait(() -> highlighted.or(highlightedRows()));
+        }
+        assertEquals(latest, highlighted);
+    }
+
+    @Test
+    public void backgroundFilterFailureIsReportedInTheView() throws Exception {
+        // Pre-condition: rows highlighted by a filter, and a scanning filter that fails
+        List<String> messages = Collections.synchronizedList(new ArrayList<>());
+        ExpenseTrackerView reportingView = new ExpenseTrackerView() {
+            @Override
+            public void showMessage(String message) {
+                messages.add(message);
+            }
+        };
+        ExpenseTrackerController reportingController = new ExpenseTrackerController(model, reportingView);
+        reportingController.addTransaction(10.0, "food");
+        reportingController.setFilter(new CategoryFilter("food"));
+        reportingController.applyFilter();
+        assertEquals(1, reportingView.getHighlightedRows().cardinality());
+        TransactionFilter failing = transactions -> {
+            throw new IllegalStateException("broken filter");
+        };
+
+        // Perform the action: Filter in the background with the failing filter
+        List<Future<BitSet>> requests = new ArrayList<>();
+        SwingUtilities.invokeAndWait(() -> {
+            reportingController.setFilter(failing);
+            requests.add(reportingController.applyFilterInBackground());
+        });
+        try {
+            requests.get(0).get();
+            fail("The filter should have failed");
+        } catch (ExecutionException e) {
+            assertEquals("broken filter", e.getCause().getMessage());
+        }
+
+        // Post-condition: the failure is shown on the EDT and nothing stays highlighted
+        for (int attempt = 0; attempt < 100 && messages.isEmpty(); attempt++) {
+            Thread.sleep(10);
+            SwingUtilities.invokeAndWait(() -> { });
+        }
+        assertEquals(Collections.singletonList("Filtering failed: broken filter"), messages);
+        SwingUtilities.invokeAndWait(() -> assertTrue(reportingView.getHighlightedRows().isEmpty()));
+    }
+
+    @Test
+    public void tableUpdatesAreCoalescedPerFrame() throws Exception {
+        // Pre-condition: the table shows two transactions and their total
+        controller.addTransaction(50.0, "food");
+        controller.addTransaction(10.0, "bills");
+        view.getTableModel().flush();
+        List<TableModelEvent> events = Collections.synchronizedList(new ArrayList<>());
+        view.getTableModel().addTableModelListener(events::add);
+
+        // Perform the action: Append a burst of 1000 transactions to the model
+        // (as a feed would, not through the controller) and let the frames pass
+        for (int i = 0; i < 1000; i++) {
+            model.addTransaction(new Transaction(1.0, "other"));
+        }
+        Thread.sleep(50);
+        SwingUtilities.invokeAndWait(() -> { });
+
+        // Post-condition: the burst reached the table as a few row ranges, not 1000 events
+        assertTrue(events.size() < 100);
+        int inserted = 0;
+        for (TableModelEvent event : events) {
+            if (event.getType() == TableModelEvent.INSERT) {
+                assertEquals(2 + inserted, event.getFirstRow());
+                inserted += event.getLastRow() - event.getFirstRow() + 1;
+            }
+        }
+        assertEquals(1000, inserted);
+        assertEquals(1003, view.getTransactionsTable().getRowCount());
+    }
+
+    @Test
+    public void tableKeepsItsRowCountUntilPendingAppendsAreReported() {
+        // Pre-condition: the table shows three transactions, and two more are appended to the model
+        controller.addTransaction(50.0, "food");
+        controller.addTransaction(10.0, "bills");
+        controller.addTransaction(20.0, "travel");
+        model.addTransaction(new Transaction(30.0, "food"));
+        model.addTransaction(new Transaction(40.0, "other"));
+        TableModel table = view.getTableModel();
+        assertEquals(4, table.getRowCount());
+        assertEquals("Total", table.getValueAt(3, 0));
+        List<TableModelEvent> events = new ArrayList<>();
+        table.addTableModelListener(events::add);
+
+        // Perform the action: Remove a shown row and a pending one, then end the frame
+        model.removeAt(new int[]{1, 3});
+        view.getTableModel().flush();
+
+        // Post-condition: the shown row is deleted at once, and the remaining append follows it
+        assertEquals(TableModelEvent.DELETE, events.get(0).getType());
+        assertEquals(1, events.get(0).getFirstRow());
+        assertEquals(1, events.get(0).getLastRow());
+        TableModelEvent appended = events.get(events.size() - 2);
+        assertEquals(TableModelEvent.INSERT, appended.getType());
+        assertEquals(2, appended.getFirstRow());
+        assertEquals(2, appended.getLastRow());
+        assertEquals(4, table.getRowCount());
+        assertEquals(40.0, table.getValueAt(2, 1));
+        assertEquals(110.0, table.getValueAt(3, 3));
+    }
+
+    @Test
+    public void totalRowIsHiddenWhileTheLedgerIsEmpty() {
+        // Pre-condition: one transaction and its total are in the table
+        controller.addTransaction(50.0, "food");
+        JTable viewList = view.getTransactionsTable();
+        assertEquals(2, viewList.getRowCount());
+
+        // Perform the action: Remove the last transaction
+        controller.applyUndo(new int[]{0});
+
+        // Post-condition: the table is empty again, as at startup, without a "Total 0" row
+        assertEquals(0, viewList.getRowCount());
+
+        // and the total row comes back with the next transaction
+        controller.addTransaction(20.0, "bills");
+        assertEquals(2, viewList.getRowCount());
+        assertEquals("Total", viewList.getValueAt(1, 0));
+        assertEquals(20.0, viewList.getValueAt(1, 3));
+    }
+
+    @Test
+    public void highlightRendererIsReused() {
+        // Pre-condition: four transactions, two of them food
+        controller.addTransaction(50.0, "food");
+        controller.addTransaction(10.0, "bills");
+        controller.addTransaction(20.0, "food");
+        controller.addTransaction(30.0, "travel");
+        JTable table = view.getTransactionsTable();
+        Object renderer = table.getCellRenderer(0, 1);
+
+        // Perform the action: Filter by food, then by bills
+        controller.setFilter(new CategoryFilter("food"));
+        controller.applyFilter();
+        BitSet food = highlightedRows();
+        controller.setFilter(new CategoryFilter("bills"));
+        controller.applyFilter();
+
+        // Post-condition: the same renderer paints the rows of the latest filter
+        assertSame(renderer, table.getCellRenderer(0, 1));
+        assertEquals(BitSet.valueOf(new long[]{0b101}), food);
+        assertEquals(BitSet.valueOf(new long[]{0b10}), highlightedRows());
+        assertEquals(highlightedRows(), view.getHighlightedRows());
+    }
+
+    @Test
+    public void tableReadsVisibleRowsFromColumns() {
+        // Pre-condition: a columnar ledger of 200,000 transactions
+        ExpenseTrackerModel ledger = new ExpenseTrackerModel(new ColumnarTransactionStore());
+        List<Transaction> batch = new ArrayList<>();
+        for (int i = 0; i < 200_000; i++) {
+            batch.add(new Transaction(i % 1000 + 1, i % 2 == 0 ? "food" : "travel", 1_600_000_000_000L + i * 60_000L));
+        }
+        ledger.addTransactions(batch);
+
+        // Perform the action: Show it in a table and read a row from the middle
+        TableModel table = view.getTableModel();
+        view.getTableModel().setSource(ledger);
+
+        // Post-condition: the cells match the transaction, formatted on demand
+        Transaction t = batch.get(123_457);
+        assertEquals(200_001, table.getRowCount());
+        assertEquals(123_458, table.getValueAt(123_457, 0));
+        assertEquals(t.getAmount(), table.getValueAt(123_457, 1));
+        assertEquals("travel", table.getValueAt(123_457, 2));
+        assertEquals(t.getTimestamp(), table.getValueAt(123_457, 3));
+        assertEquals(ledger.getStats().getTotal(), table.getValueAt(200_000, 3));
+    }
+
+    @Test
+    public void undoAndRedoChanges() throws IOException {
+        Path path = Files.createTempFile("journal", ".log");
+        try {
+            // Pre-condition: five journaled transactions
+            TransactionJournal journal = TransactionJournal.open(path, FsyncPolicy.OS_MANAGED, 5);
+            model.setJournal(journal);
+            double[] amounts = {10.0, 20.0, 30.0, 40.0, 50.0};
+            String[] categories = {"food", "bills", "food", "travel", "other"};
+            for (int i = 0; i < amounts.length; i++) {
+                controller.addTransaction(amounts[i], categories[i]);
+            }
+            controller.addTransactions(Arrays.asList(new Transaction(60.0, "food"), new Transaction(70.0, "bills")));
+
+            // Perform the action: Remove two rows, then undo the removal and the batch
+            controller.removeTransactions(new int[]{3, 1});
+            assertEquals(5, model.getTransactionCount());
+            assertTrue(controller.undo());
+            assertTrue(controller.undo());
+
+            // Post-condition: the five transactions are back in their places, indexes included
+            assertEquals(5, model.getTransactionCount());
+            for (int i = 0; i < amounts.length; i++) {
+                assertEquals(amounts[i], model.getAmount(i), 0.0);
+                assertEquals(categories[i], model.getCategory(i));
+            }
+            assertEquals(150.0, model.getStats().getTotal(), 0.01);
+            assertEquals(new CategoryFilter("food").filterRows(model.getTransactions()),
+                    new CategoryFilter("food").filterRows(model));
+            assertEquals(new AmountRangeFilter(15.0, 45.0).filterRows(model.getTransactions()),
+                    new AmountRangeFilter(15.0, 45.0).filterRows(model));
+
+            // Perform the action: Redo both changes
+            assertTrue(controller.redo());
+            assertTrue(controller.redo());
+            assertFalse(controller.redo());
+            journal.close();
+
+            // Post-condition: the removal is applied again, and the journal replays the same ledger
+            assertEquals(5, model.getTransactionCount());
+            assertEquals(30.0, model.getAmount(1), 0.0);
+            assertEquals(70.0, model.getAmount(4), 0.0);
+            ExpenseTrackerModel replayed = new ExpenseTrackerModel(new ColumnarTransactionStore());
+            TransactionJournal reopened = TransactionJournal.open(path, FsyncPolicy.OS_MANAGED, 5);
+            reopened.replay(replayed);
+            reopened.close();
+            assertEquals(model.getTransactionCount(), replayed.getTransactionCount());
+            for (int i = 0; i < model.getTransactionCount(); i++) {
+                assertEquals(model.getAmount(i), replayed.getAmount(i), 0.0);
+            }
+
+            // Post-condition: the history forgets its oldest changes beyond its memory limit
+            controller.getHistory().setMemoryLimit(0);
+            assertFalse(controller.getHistory().canUndo());
+            assertFalse(controller.undo());
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    public void modelListenersReceiveDeltas() {
+        // Pre-condition: a listener recording every change of the model
+        List<String> deltas = new ArrayList<>();
+        model.addModelListener(new ExpenseTrackerModelListener() {
+            @Override
+            public void transactionsAppended(int first, int last) {
+                deltas.add("appended " + first + ".." + last);
+            }
+
+            @Override
+            public void transactionsInserted(int[] positions) {
+                deltas.add("inserted " + Arrays.toString(positions));
+            }
+
+            @Override
+            public void transactionsRemoved(int[] positions) {
+                deltas.add("removed " + Arrays.toString(positions));
+            }
+
+            @Override
+            public void batchStarted() {
+                deltas.add("batch started");
+            }
+
+            @Override
+            public void batchFinished() {
+                deltas.add("batch finished");
+            }
+        });
+
+        // Perform the action: Append, remove and insert, partly within nested batches
+        model.addTransaction(new Transaction(10.0, "food"));
+        model.beginBatch();
+        model.addTransactions(Arrays.asList(new Transaction(20.0, "bills"), new Transaction(30.0, "travel")));
+        model.beginBatch();
+        model.removeAt(new int[]{2, 0});
+        model.endBatch();
+        model.endBatch();
+        model.insertAt(new int[]{0, 2}, Arrays.asList(new Transaction(5.0, "other"), new Transaction(6.0, "other")));
+
+        // Post-condition: every change arrived as a delta, with the outer batch boundaries only
+        assertEquals(Arrays.asList(
+                "appended 0..0",
+                "batch started",
+                "appended 1..2",
+                "removed [0, 2]",
+                "batch finished",
+                "inserted [0, 2]"), deltas);
+        // and the table followed the changes without being refreshed
+        view.getTableModel().flush();
+        assertEquals(4, view.getTransactionsTable().getRowCount());
+        assertEquals(6.0, view.getTableModel().getValueAt(2, 1));
+    }
+
+    @Test
+    public void cliFiltersAggregatesAndExportsWithoutAWindow() throws IOException {
+        Path input = Files.createTempFile("transactions", ".csv");
+        Path output = Files.createTempFile("food", ".csv");
+        try {
+            // Pre-condition: a ledger file with two food transactions
+            Files.write(input, Arrays.asList(
+                    "50.0,food,01-11-2023 10:15",
+                    "10,bills,02-11-2023 09:00",
+                    "25.5,food,03-11-2023 18:30"));
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+            // Perform the action: Import, filter, aggregate and export in batch mode
+            int status = ExpenseTrackerCli.run(new String[]{
+                    "--import", input.toString(), "--category", "food", "--amount-range", "20:60",
+                    "--stats", "--export", output.toString()},
+                    System.in, new PrintStream(out, true), new PrintStream(err, true));
+
+            // Post-condition: the stats cover the matching rows only
+            assertEquals(0, status);
+            assertEquals(Arrays.asList("count: 2", "total: 75.5", "min: 25.5", "max: 50.0", "food: 75.5"),
+                    Arrays.asList(out.toString().split("\\R")));
+            // and the export reads back into a headless engine
+            ExpenseTrackerEngine engine = new ExpenseTrackerEngine(new ExpenseTrackerModel());
+            ImportReport report = engine.importCsv(output);
+            assertEquals(2, report.getImportedCount());
+            assertEquals(0, report.getRejectedCount());
+            assertEquals("03-11-2023 18:30", engine.getModel().getTransaction(1).getTimestamp());
+            assertTrue(engine.undo());
+            assertEquals(0, engine.getModel().getTransactionCount());
+
+            // Lines can be piped in as well
+            ByteArrayOutputStream piped = new ByteArrayOutputStream();
+            assertEquals(0, ExpenseTrackerCli.run(new String[]{"--import", "-", "--stats"},
+                    new ByteArrayInputStream("10,bills\n5,travel\n".getBytes(StandardCharsets.UTF_8)),
+                    new PrintStream(piped, true), new PrintStream(err, true)));
+            assertEquals("count: 2", piped.toString().split("\\R")[0]);
+
+            // Invalid options are reported with the usage
+            assertEquals(2, ExpenseTrackerCli.run(new String[]{"--category", "invalidCategory"},
+                    System.in, new PrintStream(out, true), new PrintStream(err, true)));
+        } finally {
+            Files.deleteIfExists(input);
+            Files.deleteIfExists(output);
+        }
+    }
+
+    @Test
+    public void metricsRecordOperationsAndAreExposedOverJmx() throws Exception {
+        // Pre-condition: no operation recorded yet
+        ExpenseTrackerMetrics metrics = ExpenseTrackerMetrics.getInstance();
+        metrics.reset();
+
+        // Perform the action: Add, filter, refresh and undo through the controller
+        controller.addTransaction(50.0, "food");
+        controller.addTransaction(20.0, "bills");
+        controller.setFilter(new CategoryFilter("food"));
+        controller.applyFilter();
+        controller.refresh();
+        // (the table re-reads its rows at the end of the frame)
+        view.getTableModel().flush();
+        controller.applyUndo(new int[]{0});
+
+        // Post-condition: every operation was counted once per call
+        assertEquals(2, metrics.getHistogram(Operation.ADD_TRANSACTION).getCount());
+        // (the highlighted rows follow the removal without filtering again)
+        assertEquals(1, metrics.getHistogram(Operation.APPLY_FILTER).getCount());
+        assertEquals(2, metrics.getHistogram(Operation.HIGHLIGHT_ROWS).getCount());
+        assertEquals(1, metrics.getHistogram(Operation.REFRESH).getCount());
+        assertEquals(1, metrics.getHistogram(Operation.REFRESH_TABLE).getCount());
+        assertEquals(1, metrics.getHistogram(Operation.APPLY_UNDO).getCount());
+        LatencyHistogram histogram = metrics.getHistogram(Operation.ADD_TRANSACTION);
+        assertTrue(histogram.getPercentileNanos(0.5) <= histogram.getMaxNanos());
+
+        // and so are the batch changes: add a batch, import a file and remove both rows in one go
+        controller.addTransactions(Arrays.asList(new Transaction(5.0, "food")));
+        Path csv = Files.createTempFile("transactions", ".csv");
+        try {
+            Files.write(csv, Arrays.asList("10,food"));
+            controller.importCsv(csv);
+        } finally {
+            Files.deleteIfExists(csv);
+        }
+        controller.removeTransactions(new int[]{1, 2});
+        assertEquals(1, metrics.getHistogram(Operation.ADD_TRANSACTIONS).getCount());
+        assertEquals(1, metrics.getHistogram(Operation.IMPORT_CSV).getCount());
+        assertEquals(1, metrics.getHistogram(Operation.REMOVE_TRANSACTIONS).getCount());
+
+        // and the MBean reads the ledger size and the operations
+        metrics.setLedgerSize(model::getTransactionCount);
+        metrics.register();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(ExpenseTrackerMetrics.OBJECT_NAME);
+        assertEquals(1, server.getAttribute(name, "LedgerSize"));
+        CompositeData[] operations = (CompositeData[]) server.getAttribute(name, "Operations");
+        assertEquals(Operation.values().length, operations.length);
+        assertEquals("ADD_TRANSACTION", operations[0].get("name"));
+        assertEquals(2L, operations[0].get("count"));
+
+        // A percentile is at most 25% above the recorded latency
+        LatencyHistogram latencies = new LatencyHistogram();
+        for (long nanos = 1; nanos <= 1000; nanos++) {
+            latencies.record(nanos * 1000);
+        }
+        assertTrue(latencies.getPercentileNanos(0.99) >= 990_000);
+        assertTrue(latencies.getPercentileNanos(0.99) <= 990_000 * 1.25);
+        assertEquals(1_000_000, latencies.getPercentileNanos(1.0));
+        metrics.setLedgerSize(() -> 0);
+    }
+
     @Test
     public void undoDisallowedCase5(){
         // Pre-condition: List of transactions is empty
@@ -373,7 +1595,7 @@ public class TestExample {
         };
 
         // checking through model if the transactions is undone
-        DefaultTableModel tableListModel = view.getTableModel();
+        TableModel tableListModel = view.getTableModel();
         Date transactionDate = null;
         try {
             transactionDate = Transaction.dateFormatter.parse((String) tableListModel.getValueAt(0, 3));
@@ -394,6 +1616,19 @@ public class TestExample {
 
     }
     
+
+    // Reads the highlighted rows back from the table's cell renderer
+    private BitSet highlightedRows() {
+        BitSet rows = new BitSet();
+        JTable table = view.getTransactionsTable();
+        for (int i = 0; i < model.getTransactionCount(); i++) {
+            Component cell = table.getCellRenderer(i, 1).getTableCellRendererComponent(table, table.getValueAt(i, 1), false, false, i, 1);
+            if (new Color(173, 255, 168).equals(cell.getBackground())) {
+                rows.set(i);
+            }
+        }
+        return rows;
+    }
 }
 
 